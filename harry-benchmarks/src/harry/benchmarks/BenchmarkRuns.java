@@ -0,0 +1,195 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import harry.core.Configuration;
+import harry.core.Run;
+import harry.ddl.SchemaSpec;
+import harry.generators.DataGenerators;
+import harry.model.OpSelectors;
+import harry.model.clock.OffsetClock;
+import harry.model.sut.SystemUnderTest;
+import harry.operations.Query;
+import harry.reconciler.Reconciler;
+
+import static harry.model.Model.NO_TIMESTAMP;
+
+/**
+ * Runs for benchmarking model costs without a cluster. All LTS up to {@code historyLength} visit a single partition,
+ * and are marked as finished in the tracker, so that the model sees a quiesced history of that length.
+ */
+class BenchmarkRuns
+{
+    static Run run(SchemaSpec schema, SystemUnderTest sut, int historyLength, int rowsPerPartition, String weights)
+    {
+        Run run = new Configuration.ConfigurationBuilder()
+                  .setSeed(1L)
+                  .setSchemaProvider((seed, ignore) -> schema)
+                  .setClock(() -> new OffsetClock(100000))
+                  .setSUT(() -> sut)
+                  .setPartitionDescriptorSelector(new Configuration.DefaultPDSelectorConfiguration(1, historyLength))
+                  .setClusteringDescriptorSelector((builder) -> {
+                      builder.setNumberOfModificationsDistribution(new Configuration.ConstantDistributionConfig(2))
+                             .setRowsPerModificationDistribution(new Configuration.ConstantDistributionConfig(2))
+                             .setMaxPartitionSize(rowsPerPartition)
+                             .setOperationKindWeights(weights(schema, weights));
+                  })
+                  .build()
+                  .createRun();
+
+        for (long lts = 0; lts < historyLength; lts++)
+        {
+            run.tracker.started(lts);
+            run.tracker.finished(lts);
+        }
+        return run;
+    }
+
+    /**
+     * {@code writes} is mostly inserts and updates, {@code deletes} has as many deletions of each kind as writes,
+     * which makes reconciliation walk range tombstones and drop rows far more often.
+     */
+    static Map<OpSelectors.OperationKind, Integer> weights(SchemaSpec schema, String weights)
+    {
+        int deletes;
+        switch (weights)
+        {
+            case "writes":
+                deletes = 1;
+                break;
+            case "deletes":
+                deletes = 50;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation weights: " + weights);
+        }
+
+        Configuration.WeightedSelectorBuilder<OpSelectors.OperationKind> builder = new Configuration.OperationKindSelectorBuilder();
+        builder.addWeight(OpSelectors.OperationKind.DELETE_ROW, deletes)
+               .addWeight(OpSelectors.OperationKind.DELETE_COLUMN, deletes)
+               .addWeight(OpSelectors.OperationKind.DELETE_RANGE, deletes)
+               .addWeight(OpSelectors.OperationKind.DELETE_SLICE, deletes)
+               .addWeight(OpSelectors.OperationKind.DELETE_PARTITION, 1)
+               .addWeight(OpSelectors.OperationKind.INSERT, 50)
+               .addWeight(OpSelectors.OperationKind.UPDATE, 50);
+        if (!schema.staticColumns.isEmpty())
+        {
+            builder.addWeight(OpSelectors.OperationKind.INSERT_WITH_STATICS, 20)
+                   .addWeight(OpSelectors.OperationKind.UPDATE_WITH_STATICS, 20)
+                   .addWeight(OpSelectors.OperationKind.DELETE_COLUMN_WITH_STATICS, deletes);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Renders partition state the way a SELECT with write times would return it.
+     */
+    static Object[][] toResultSet(Run run, Reconciler.PartitionState state, Query query)
+    {
+        SchemaSpec schema = run.schemaSpec;
+        Object[] pk = schema.inflatePartitionKey(query.pd);
+        List<Object[]> rows = new ArrayList<>();
+        Reconciler.RowState staticRow = state.staticRow();
+        if (state.isEmpty())
+        {
+            if (staticRow != null && hasTimestamps(staticRow.lts))
+                rows.add(toRow(run, pk, new Object[schema.clusteringKeys.size()], staticRow, null));
+        }
+        else
+        {
+            for (Reconciler.RowState row : state.rows(query.reverse))
+                rows.add(toRow(run, pk, schema.inflateClusteringKey(row.cd), staticRow, row));
+        }
+        return rows.toArray(new Object[0][]);
+    }
+
+    private static Object[] toRow(Run run, Object[] pk, Object[] ck, Reconciler.RowState staticRow, Reconciler.RowState row)
+    {
+        SchemaSpec schema = run.schemaSpec;
+        Object[] result = new Object[schema.allColumns.size() + schema.staticColumns.size() + schema.regularColumns.size()];
+        int idx = 0;
+        idx = copy(pk, result, idx);
+        idx = copy(ck, result, idx);
+        idx = copy(staticRow == null ? new Object[0] : DataGenerators.inflateData(schema.staticColumns, staticRow.vds), result, idx);
+        idx = copy(row == null ? new Object[schema.regularColumns.size()] : DataGenerators.inflateData(schema.regularColumns, row.vds), result, idx);
+        idx = copyTimestamps(run, staticRow == null ? new long[0] : staticRow.lts, result, idx);
+        copyTimestamps(run, row == null ? Reconciler.arr(schema.regularColumns.size(), NO_TIMESTAMP) : row.lts, result, idx);
+        return result;
+    }
+
+    private static int copy(Object[] from, Object[] to, int idx)
+    {
+        System.arraycopy(from, 0, to, idx, from.length);
+        return idx + from.length;
+    }
+
+    private static int copyTimestamps(Run run, long[] lts, Object[] to, int idx)
+    {
+        for (long l : lts)
+            to[idx++] = l == NO_TIMESTAMP ? null : run.clock.rts(l);
+        return idx;
+    }
+
+    private static boolean hasTimestamps(long[] lts)
+    {
+        for (long l : lts)
+        {
+            if (l != NO_TIMESTAMP)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a preset result for any statement, so that validation can be benchmarked without a cluster.
+     */
+    static class CannedResultSut implements SystemUnderTest
+    {
+        private volatile Object[][] result = new Object[0][];
+
+        void setResult(Object[][] result)
+        {
+            this.result = result;
+        }
+
+        public boolean isShutdown()
+        {
+            return false;
+        }
+
+        public void shutdown()
+        {
+        }
+
+        public Object[][] execute(String statement, ConsistencyLevel cl, Object... bindings)
+        {
+            return result;
+        }
+
+        public CompletableFuture<Object[][]> executeAsync(String statement, ConsistencyLevel cl, Object... bindings)
+        {
+            return CompletableFuture.completedFuture(execute(statement, cl, bindings));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import harry.ddl.ColumnSpec;
+import harry.ddl.SchemaGenerators;
+import harry.ddl.SchemaSpec;
+import harry.generators.PcgRSUFast;
+
+/**
+ * Schemas for parameterising benchmarks over width (number of columns of each kind) and column type.
+ */
+class BenchmarkSchemas
+{
+    /**
+     * Column types benchmarks can be parameterised with. {@code mixed} draws each column from the types
+     * {@link SchemaGenerators} uses for fuzz schemas.
+     */
+    static final String[] COLUMN_TYPES = { "int64", "int32", "double", "uuid", "ascii", "ascii_256", "mixed" };
+
+    static SchemaSpec schema(String columnType, int width)
+    {
+        SchemaGenerators.Builder builder = new SchemaGenerators.Builder("harry", () -> "tbl_" + columnType + "_" + width);
+        if (columnType.equals("mixed"))
+        {
+            builder.partitionKeySpec(width, width, SchemaGenerators.partitionKeyTypes)
+                   .clusteringKeySpec(width, width, SchemaGenerators.clusteringKeyTypes)
+                   .regularColumnSpec(width, width, SchemaGenerators.columnTypes)
+                   .staticColumnSpec(width, width, SchemaGenerators.columnTypes);
+        }
+        else
+        {
+            Collection<ColumnSpec.DataType<?>> type = Collections.singletonList(dataType(columnType));
+            builder.partitionKeySpec(width, width, type)
+                   .clusteringKeySpec(width, width, type)
+                   .regularColumnSpec(width, width, type)
+                   .staticColumnSpec(width, width, type);
+        }
+
+        return builder.generator().generate(new PcgRSUFast(1, 1));
+    }
+
+    static ColumnSpec.DataType<?> dataType(String columnType)
+    {
+        switch (columnType)
+        {
+            case "int64":
+                return ColumnSpec.int64Type;
+            case "int32":
+                return ColumnSpec.int32Type;
+            case "double":
+                return ColumnSpec.doubleType;
+            case "uuid":
+                return ColumnSpec.uuidType;
+            case "ascii":
+                return ColumnSpec.asciiType;
+            case "ascii_256":
+                return ColumnSpec.asciiType(4, 256);
+            default:
+                throw new IllegalArgumentException("Unknown column type: " + columnType);
+        }
+    }
+}
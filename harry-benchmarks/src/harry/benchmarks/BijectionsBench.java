@@ -0,0 +1,97 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.ddl.ColumnSpec;
+import harry.generators.DataGenerators;
+import harry.generators.RngUtils;
+
+/**
+ * Inflation and deflation of a row of regular column values through their {@code Bijections}, as done for every
+ * written row and every validated result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BijectionsBench
+{
+    private static final int ROWS = 1024;
+
+    @Param({ "1", "4", "16" })
+    public int width;
+
+    @Param({ "int64", "int32", "double", "uuid", "ascii", "ascii_256", "mixed" })
+    public String columnType;
+
+    private List<ColumnSpec<?>> columns;
+    private long[][] descriptors;
+    private Object[][] values;
+    private int idx;
+
+    @Setup
+    public void setup()
+    {
+        columns = BenchmarkSchemas.schema(columnType, width).regularColumns;
+        descriptors = new long[ROWS][];
+        values = new Object[ROWS][];
+        long current = 1;
+        for (int i = 0; i < ROWS; i++)
+        {
+            descriptors[i] = new long[columns.size()];
+            for (int j = 0; j < columns.size(); j++)
+            {
+                current = RngUtils.next(current);
+                descriptors[i][j] = columns.get(j).generator().adjustEntropyDomain(current);
+            }
+            values[i] = DataGenerators.inflateData(columns, descriptors[i]);
+        }
+    }
+
+    @Benchmark
+    public Object[] inflate()
+    {
+        idx = (idx + 1) % ROWS;
+        return DataGenerators.inflateData(columns, descriptors[idx]);
+    }
+
+    @Benchmark
+    public long[] deflate()
+    {
+        idx = (idx + 1) % ROWS;
+        return DataGenerators.deflateData(columns, values[idx]);
+    }
+}
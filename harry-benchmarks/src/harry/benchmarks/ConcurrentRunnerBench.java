@@ -0,0 +1,169 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import harry.core.Configuration;
+import harry.core.Run;
+import harry.model.clock.OffsetClock;
+import harry.model.sut.SystemUnderTest;
+import harry.runner.Runner;
+import harry.visitors.MutatingRowVisitor;
+import harry.visitors.MutatingVisitor;
+
+/**
+ * How far {@link Runner.ConcurrentRunner} scales with concurrency on a single box, with visitor loops on platform
+ * and on virtual threads. The SUT blocks the calling thread for {@code latencyMicros} per statement, the way in-JVM
+ * and driver-based SUTs block while waiting for a response, so throughput should grow linearly with concurrency
+ * until the runner runs out of threads or CPU.
+ *
+ * Reports finished LTS per second as the {@code lts} counter; the benchmark method itself only samples the tracker.
+ * Needs a JVM with virtual threads (Java 21 or later) for the {@code virtualThreads=true} runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xss256k" })
+@State(Scope.Benchmark)
+public class ConcurrentRunnerBench
+{
+    @Param({ "16", "256", "1024", "4096", "16384" })
+    public int concurrency;
+
+    @Param({ "false", "true" })
+    public boolean virtualThreads;
+
+    @Param({ "1000" })
+    public long latencyMicros;
+
+    private Run run;
+    private Runner runner;
+    private long lastFinished;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters
+    {
+        public long lts;
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        SystemUnderTest sut = new BlockingSut(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        Configuration config = new Configuration.ConfigurationBuilder()
+                               .setSeed(1L)
+                               .setSchemaProvider((seed, ignore) -> BenchmarkSchemas.schema("int64", 2))
+                               .setClock(() -> new OffsetClock(100000))
+                               .setSUT(() -> sut)
+                               .setDataTracker(new Configuration.LockFreeDataTrackerConfiguration())
+                               .setPartitionDescriptorSelector(new Configuration.DefaultPDSelectorConfiguration(concurrency, 100))
+                               .setClusteringDescriptorSelector((builder) -> {
+                                   builder.setNumberOfModificationsDistribution(new Configuration.ConstantDistributionConfig(2))
+                                          .setRowsPerModificationDistribution(new Configuration.ConstantDistributionConfig(2))
+                                          .setMaxPartitionSize(100);
+                               })
+                               .setCreateSchema(false)
+                               .setTruncateTable(false)
+                               .setDropSchema(false)
+                               .build();
+        run = config.createRun();
+        runner = new Runner.ConcurrentRunner(run, config, concurrency, virtualThreads,
+                                             Collections.singletonList(r -> new MutatingVisitor(r, MutatingRowVisitor::new)),
+                                             1, TimeUnit.HOURS);
+        runner.initAndStartAll();
+        lastFinished = run.tracker.maxConsecutiveFinished();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws InterruptedException
+    {
+        runner.shutdown();
+    }
+
+    @Benchmark
+    public void finishedLts(Counters counters)
+    {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        long finished = run.tracker.maxConsecutiveFinished();
+        counters.lts += finished - lastFinished;
+        lastFinished = finished;
+    }
+
+    /**
+     * Executes every statement synchronously, blocking the caller for a fixed time.
+     */
+    static class BlockingSut implements SystemUnderTest
+    {
+        private final long latencyNanos;
+
+        BlockingSut(long latencyNanos)
+        {
+            this.latencyNanos = latencyNanos;
+        }
+
+        public boolean isShutdown()
+        {
+            return false;
+        }
+
+        public void shutdown()
+        {
+        }
+
+        public Object[][] execute(String statement, ConsistencyLevel cl, Object... bindings)
+        {
+            LockSupport.parkNanos(latencyNanos);
+            return new Object[0][];
+        }
+
+        public CompletableFuture<Object[][]> executeAsync(String statement, ConsistencyLevel cl, Object... bindings)
+        {
+            return CompletableFuture.completedFuture(execute(statement, cl, bindings));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new org.openjdk.jmh.runner.Runner(new OptionsBuilder().include(ConcurrentRunnerBench.class.getSimpleName())
+                                                              .build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.core.Configuration;
+import harry.runner.DataTracker;
+
+/**
+ * Started/finished throughput of data trackers under contention. Thread count can be changed with {@code -t}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class DataTrackerBench
+{
+    @Param({ "default", "lock_free" })
+    public String tracker;
+
+    private DataTracker dataTracker;
+    private AtomicLong lts;
+
+    @Setup
+    public void setup()
+    {
+        switch (tracker)
+        {
+            case "default":
+                dataTracker = new Configuration.DefaultDataTrackerConfiguration().make();
+                break;
+            case "lock_free":
+                dataTracker = new Configuration.LockFreeDataTrackerConfiguration().make();
+                break;
+            default:
+                throw new IllegalArgumentException(tracker);
+        }
+        lts = new AtomicLong();
+    }
+
+    @Benchmark
+    public long startFinish()
+    {
+        long next = lts.getAndIncrement();
+        dataTracker.started(next);
+        dataTracker.finished(next);
+        return dataTracker.maxConsecutiveFinished();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.ddl.SchemaSpec;
+import harry.generators.distribution.Distribution;
+import harry.model.OpSelectors;
+
+/**
+ * Clustering and value descriptor generation, called for every operation of every LTS, both when writing and
+ * when reconciling partition state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DescriptorSelectorBench
+{
+    @Param({ "1", "4", "16" })
+    public int width;
+
+    @Param({ "int64", "int32", "double", "uuid", "ascii", "ascii_256", "mixed" })
+    public String columnType;
+
+    private static final int LTS = 1024;
+
+    private SchemaSpec schema;
+    private OpSelectors.DefaultDescriptorSelector descriptorSelector;
+    private long[] pds;
+    private long[] cds;
+    private OpSelectors.OperationKind[] opTypes;
+    private long[] scratch;
+    private int lts;
+
+    // Up to 30 operations per LTS, below the 64 operations partition-level masks support
+    private OpSelectors.DefaultDescriptorSelector batchSelector;
+    private long[] batchCds;
+    private long[] batchMasks;
+    private OpSelectors.OperationKind[] batchOpTypes;
+
+    @Setup
+    public void setup()
+    {
+        schema = BenchmarkSchemas.schema(columnType, width);
+        OpSelectors.Rng rng = new OpSelectors.PCGFast(1);
+        OpSelectors.PdSelector pdSelector = new OpSelectors.DefaultPdSelector(rng, 10, 100);
+        descriptorSelector = new OpSelectors.DefaultDescriptorSelector(rng,
+                                                                       new OpSelectors.ColumnSelectorBuilder().forAll(schema).build(),
+                                                                       OpSelectors.DefaultDescriptorSelector.DEFAULT_OP_SELECTOR,
+                                                                       new Distribution.ScaledDistribution(1, 3),
+                                                                       new Distribution.ScaledDistribution(2, 30),
+                                                                       100);
+        pds = new long[LTS];
+        cds = new long[LTS];
+        opTypes = new OpSelectors.OperationKind[LTS];
+        for (int i = 0; i < LTS; i++)
+        {
+            pds[i] = pdSelector.pd(i, schema);
+            cds[i] = descriptorSelector.cd(pds[i], i, 0, schema);
+            opTypes[i] = descriptorSelector.operationType(pds[i], i, 0);
+        }
+        scratch = new long[schema.regularColumns.size()];
+
+        batchSelector = new OpSelectors.DefaultDescriptorSelector(rng,
+                                                                  new OpSelectors.ColumnSelectorBuilder().forAll(schema).build(),
+                                                                  OpSelectors.DefaultDescriptorSelector.DEFAULT_OP_SELECTOR,
+                                                                  new Distribution.ScaledDistribution(1, 3),
+                                                                  new Distribution.ScaledDistribution(2, 10),
+                                                                  100);
+        batchCds = new long[30];
+        batchMasks = new long[30];
+        batchOpTypes = new OpSelectors.OperationKind[30];
+    }
+
+    @Benchmark
+    public long cd()
+    {
+        lts = (lts + 1) % LTS;
+        return descriptorSelector.cd(pds[lts], lts, 0, schema);
+    }
+
+    @Benchmark
+    public long[] vds()
+    {
+        lts = (lts + 1) % LTS;
+        return descriptorSelector.vds(pds[lts], cds[lts], lts, 0, opTypes[lts], schema);
+    }
+
+    @Benchmark
+    public long[] vdsInto()
+    {
+        lts = (lts + 1) % LTS;
+        descriptorSelector.vds(pds[lts], cds[lts], lts, 0, opTypes[lts], schema, scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public long[] operations()
+    {
+        lts = (lts + 1) % LTS;
+        batchSelector.operations(pds[lts], lts, schema, batchCds, batchOpTypes, batchMasks);
+        return batchCds;
+    }
+
+    /**
+     * Same descriptors as {@link #operations()}, drawn one operation at a time.
+     */
+    @Benchmark
+    public long[] operationsScalar()
+    {
+        lts = (lts + 1) % LTS;
+        long pd = pds[lts];
+        int count = batchSelector.numberOfModifications(lts) * batchSelector.opsPerModification(lts);
+        for (int opId = 0; opId < count; opId++)
+        {
+            batchCds[opId] = batchSelector.cd(pd, lts, opId, schema);
+            batchOpTypes[opId] = batchSelector.operationType(pd, lts, opId);
+            batchMasks[opId] = batchSelector.columnMaskBits(pd, lts, opId, batchOpTypes[opId]);
+        }
+        return batchCds;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.ddl.SchemaSpec;
+import harry.generators.DataGenerators;
+import harry.generators.RngUtils;
+
+/**
+ * Partition and clustering key inflation and deflation, which goes through {@link DataGenerators#inflateKey} and
+ * {@link DataGenerators#deflateKey} for every written row and every validated result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyGeneratorBench
+{
+    private static final int KEYS = 1024;
+
+    @Param({ "1", "2", "4", "8" })
+    public int width;
+
+    @Param({ "int64", "int32", "double", "uuid", "ascii", "ascii_256", "mixed" })
+    public String columnType;
+
+    @Param({ "partition", "clustering" })
+    public String key;
+
+    private SchemaSpec schema;
+    private DataGenerators.KeyGenerator generator;
+    private long[] descriptors;
+    private Object[][] keys;
+    private int idx;
+
+    @Setup
+    public void setup()
+    {
+        schema = BenchmarkSchemas.schema(columnType, width);
+        generator = key.equals("partition") ? schema.pkGenerator : schema.ckGenerator;
+        descriptors = new long[KEYS];
+        keys = new Object[KEYS][];
+        long current = 1;
+        for (int i = 0; i < KEYS; i++)
+        {
+            current = RngUtils.next(current);
+            descriptors[i] = generator.adjustEntropyDomain(current);
+            keys[i] = generator.inflate(descriptors[i]);
+        }
+    }
+
+    @Benchmark
+    public Object[] inflate()
+    {
+        idx = (idx + 1) % KEYS;
+        return generator.inflate(descriptors[idx]);
+    }
+
+    /**
+     * Inflation through the schema key cache, where most of the {@link #KEYS} keys stay cached once warmed up.
+     */
+    @Benchmark
+    public Object[] inflateCached()
+    {
+        idx = (idx + 1) % KEYS;
+        return key.equals("partition") ? schema.inflatePartitionKey(descriptors[idx])
+                                       : schema.inflateClusteringKey(descriptors[idx]);
+    }
+
+    @Benchmark
+    public long deflate()
+    {
+        idx = (idx + 1) % KEYS;
+        return generator.deflate(keys[idx]);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.generators.PCGFastPure;
+
+/**
+ * Raw cost of PCG state transitions, which every descriptor lookup is built on. {@code advanceState} cost depends
+ * on the number of bits in the step count; the {@code Iterative} variants are the reference implementations that
+ * rebuild the jump table on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PCGFastPureBench
+{
+    private static final long STREAM = 0x7A8F2B3C1D5E6F01L;
+
+    @Param({ "1", "1024", "1099511627776" })
+    public long steps;
+
+    private long state = 1;
+
+    @Benchmark
+    public long next()
+    {
+        state = PCGFastPure.next(state, STREAM);
+        return state;
+    }
+
+    @Benchmark
+    public long advanceState()
+    {
+        state = PCGFastPure.advanceState(state, steps, STREAM);
+        return state;
+    }
+
+    @Benchmark
+    public long advanceStateIterative()
+    {
+        state = PCGFastPure.advanceStateIterative(state, steps, STREAM);
+        return state;
+    }
+
+    @Benchmark
+    public long distance()
+    {
+        return PCGFastPure.distance(state, PCGFastPure.advanceState(state, steps, STREAM), STREAM);
+    }
+
+    @Benchmark
+    public long distanceIterative()
+    {
+        return PCGFastPure.distanceIterative(state, PCGFastPure.advanceState(state, steps, STREAM), STREAM);
+    }
+
+    @Benchmark
+    public long previous()
+    {
+        state = PCGFastPure.previous(state, STREAM);
+        return state;
+    }
+}
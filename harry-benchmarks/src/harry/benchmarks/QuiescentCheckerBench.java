@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import harry.core.Run;
+import harry.model.QuiescentChecker;
+import harry.operations.Query;
+import harry.reconciler.Reconciler;
+
+/**
+ * End-to-end cost of validating a query against a SUT that returns the expected result: statement compilation,
+ * result deflation, reconciliation and comparison. Run with {@code -prof gc}, or through {@link #main}, to get
+ * allocation rates along with timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuiescentCheckerBench
+{
+    @Param({ "100", "1000", "10000" })
+    public int historyLength;
+
+    @Param({ "10", "100", "1000" })
+    public int rowsPerPartition;
+
+    @Param({ "writes", "deletes" })
+    public String weights;
+
+    @Param({ "SINGLE_PARTITION", "SINGLE_CLUSTERING", "CLUSTERING_SLICE", "CLUSTERING_RANGE" })
+    public Query.QueryKind queryKind;
+
+    @Param({ "0", "128" })
+    public int partitionCacheSize;
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    private QuiescentChecker checker;
+    private Query query;
+
+    @Setup
+    public void setup()
+    {
+        BenchmarkRuns.CannedResultSut sut = new BenchmarkRuns.CannedResultSut();
+        Run run = BenchmarkRuns.run(BenchmarkSchemas.schema("mixed", 2), sut, historyLength, rowsPerPartition, weights);
+        query = run.rangeSelector.inflate(0, 0, queryKind);
+
+        Reconciler.PartitionState expected = new Reconciler(run, 0, Reconciler.PartitionStateKind.TREE_MAP)
+                                             .inflatePartitionState(query.pd, run.tracker.maxStarted(), query);
+        sut.setResult(BenchmarkRuns.toResultSet(run, expected, query));
+
+        checker = new QuiescentChecker(run,
+                                       new Reconciler(run, partitionCacheSize, Reconciler.PartitionStateKind.TREE_MAP),
+                                       streaming);
+        // Fail setup rather than measure the failure path
+        checker.validate(query);
+    }
+
+    @Benchmark
+    public void validate()
+    {
+        checker.validate(query);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(QuiescentCheckerBench.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
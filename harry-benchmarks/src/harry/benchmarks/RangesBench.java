@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.util.Ranges;
+
+/**
+ * Compares range tombstone lookups against a linear scan, which is what reconciliation used to do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RangesBench
+{
+    private static final int LOOKUPS = 1024;
+
+    @Param({ "1", "16", "128", "1024" })
+    public int ranges;
+
+    private List<Ranges.Range> list;
+    private Ranges tree;
+    private long[] cds;
+    private long[] ltss;
+
+    @Setup
+    public void setup()
+    {
+        Random rnd = new Random(1);
+        list = new ArrayList<>();
+        for (int i = 0; i < ranges; i++)
+        {
+            long a = rnd.nextInt(1_000_000);
+            // Mostly narrow slices, similar to what a partition accumulates
+            long b = a + 1 + rnd.nextInt(1000);
+            list.add(new Ranges.Range(a, b, rnd.nextBoolean(), rnd.nextBoolean(), rnd.nextInt(1000)));
+        }
+        tree = new Ranges(list);
+
+        cds = new long[LOOKUPS];
+        ltss = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            cds[i] = rnd.nextInt(1_000_000);
+            ltss[i] = rnd.nextInt(1000);
+        }
+    }
+
+    @Benchmark
+    public int isShadowed()
+    {
+        int shadowed = 0;
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            if (tree.isShadowed(cds[i], ltss[i]))
+                shadowed++;
+        }
+        return shadowed;
+    }
+
+    @Benchmark
+    public int isShadowedLinear()
+    {
+        int shadowed = 0;
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            for (Ranges.Range range : list)
+            {
+                if (range.contains(cds[i], ltss[i]))
+                {
+                    shadowed++;
+                    break;
+                }
+            }
+        }
+        return shadowed;
+    }
+
+    @Benchmark
+    public Ranges build()
+    {
+        return new Ranges(list);
+    }
+}
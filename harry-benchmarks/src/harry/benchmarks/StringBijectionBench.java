@@ -0,0 +1,91 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import harry.generators.RngUtils;
+import harry.generators.StringBijection;
+
+/**
+ * String values are the most expensive ones to inflate and deflate, and ASCII columns are present in most schemas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringBijectionBench
+{
+    private static final int VALUES = 1024;
+
+    // a single character can not make 256 unique nibbles out of the alphabet
+    @Param({ "2", "4", "8", "12" })
+    public int nibbleSize;
+
+    @Param({ "0", "10", "256" })
+    public int maxRandomBytes;
+
+    private StringBijection bijection;
+    private long[] descriptors;
+    private String[] values;
+    private int idx;
+
+    @Setup
+    public void setup()
+    {
+        bijection = new StringBijection(nibbleSize, maxRandomBytes);
+        descriptors = new long[VALUES];
+        values = new String[VALUES];
+        long current = 1;
+        for (int i = 0; i < VALUES; i++)
+        {
+            current = RngUtils.next(current);
+            descriptors[i] = current;
+            values[i] = bijection.inflate(current);
+        }
+    }
+
+    @Benchmark
+    public String inflate()
+    {
+        idx = (idx + 1) % VALUES;
+        return bijection.inflate(descriptors[idx]);
+    }
+
+    @Benchmark
+    public long deflate()
+    {
+        idx = (idx + 1) % VALUES;
+        return bijection.deflate(values[idx]);
+    }
+}
@@ -46,10 +46,13 @@ import harry.model.clock.ApproximateMonotonicClock;
 import harry.model.clock.OffsetClock;
 import harry.model.sut.PrintlnSut;
 import harry.model.sut.SystemUnderTest;
+import harry.reconciler.Reconciler;
 import harry.visitors.AllPartitionsValidator;
 import harry.visitors.CorruptingVisitor;
 import harry.runner.DataTracker;
 import harry.runner.DefaultDataTracker;
+import harry.runner.LockFreeDataTracker;
+import harry.runner.RateLimitedRunner;
 import harry.visitors.LoggingVisitor;
 import harry.visitors.MutatingVisitor;
 import harry.visitors.MutatingRowVisitor;
@@ -60,6 +63,7 @@ import harry.visitors.RecentValidator;
 import harry.runner.Runner;
 import harry.visitors.Sampler;
 import harry.util.BitSet;
+import harry.util.VirtualThreads;
 
 public class Configuration
 {
@@ -77,8 +81,10 @@ public class Configuration
         mapper.registerSubtypes(Configuration.ConcurrentRunnerConfig.class);
         mapper.registerSubtypes(Configuration.SequentialRunnerConfig.class);
         mapper.registerSubtypes(Configuration.SingleVisitRunnerConfig.class);
+        mapper.registerSubtypes(RateLimitedRunner.RateLimitedRunnerConfig.class);
         mapper.registerSubtypes(Configuration.DefaultDataTrackerConfiguration.class);
         mapper.registerSubtypes(Configuration.NoOpDataTrackerConfiguration.class);
+        mapper.registerSubtypes(Configuration.LockFreeDataTrackerConfiguration.class);
 
         mapper.registerSubtypes(Configuration.QuiescentCheckerConfig.class);
         mapper.registerSubtypes(NoOpCheckerConfig.class);
@@ -101,6 +107,7 @@ public class Configuration
         mapper.registerSubtypes(PrintlnSut.PrintlnSutConfiguration.class);
         mapper.registerSubtypes(NoOpDataTrackerConfiguration.class);
         mapper.registerSubtypes(NoOpMetricReporterConfiguration.class);
+        mapper.registerSubtypes(HistogramMetricReporterConfiguration.class);
     }
 
     public final long seed;
@@ -240,14 +247,16 @@ public class Configuration
         OpSelectors.PdSelector pdSelector = snapshot.partition_descriptor_selector.make(rng);
         OpSelectors.DescriptorSelector descriptorSelector = snapshot.clustering_descriptor_selector.make(rng, schemaSpec);
 
-        return new Run(rng,
-                       clock,
-                       pdSelector,
-                       descriptorSelector,
-                       schemaSpec,
-                       tracker,
-                       sut,
-                       metricReporter);
+        Run run = new Run(rng,
+                          clock,
+                          pdSelector,
+                          descriptorSelector,
+                          schemaSpec,
+                          tracker,
+                          sut,
+                          metricReporter);
+        metricReporter.start(run);
+        return run;
     }
 
     public static Runner createRunner(Configuration config)
@@ -445,6 +454,36 @@ public class Configuration
         }
     }
 
+    @JsonTypeName("lock_free")
+    public static class LockFreeDataTrackerConfiguration implements DataTrackerConfiguration
+    {
+        public final long max_seen_lts;
+        public final long max_complete_lts;
+        public final int window_size;
+
+        public LockFreeDataTrackerConfiguration()
+        {
+            this(-1, -1, LockFreeDataTracker.DEFAULT_WINDOW_SIZE);
+        }
+
+        @JsonCreator
+        public LockFreeDataTrackerConfiguration(@JsonProperty(value = "max_seen_lts", defaultValue = "-1") long max_seen_lts,
+                                                @JsonProperty(value = "max_complete_lts", defaultValue = "-1") long max_complete_lts,
+                                                @JsonProperty(value = "window_size", defaultValue = "65536") Integer window_size)
+        {
+            this.max_seen_lts = max_seen_lts;
+            this.max_complete_lts = max_complete_lts;
+            this.window_size = window_size == null ? LockFreeDataTracker.DEFAULT_WINDOW_SIZE : window_size;
+        }
+
+        public DataTracker make()
+        {
+            LockFreeDataTracker tracker = new LockFreeDataTracker(window_size);
+            tracker.forceLts(max_seen_lts, max_complete_lts);
+            return tracker;
+        }
+    }
+
     @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.WRAPPER_OBJECT)
     public interface ClockConfiguration extends OpSelectors.MonotonicClockFactory
     {
@@ -525,6 +564,7 @@ public class Configuration
     public static class ConcurrentRunnerConfig implements RunnerConfiguration
     {
         public final int concurrency;
+        public final boolean virtual_threads;
 
         @JsonProperty(value = "visitors")
         public final List<VisitorConfiguration> visitorFactories;
@@ -532,13 +572,27 @@ public class Configuration
         public final long run_time;
         public final TimeUnit run_time_unit;
 
+        public ConcurrentRunnerConfig(int concurrency,
+                                      List<VisitorConfiguration> visitors,
+                                      long runtime,
+                                      TimeUnit runtimeUnit)
+        {
+            this(concurrency, false, visitors, runtime, runtimeUnit);
+        }
+
         @JsonCreator
         public ConcurrentRunnerConfig(@JsonProperty(value = "concurrency", defaultValue = "4") int concurrency,
+                                      @JsonProperty(value = "virtual_threads", defaultValue = "false") Boolean virtual_threads,
                                       @JsonProperty(value = "visitors") List<VisitorConfiguration> visitors,
                                       @JsonProperty(value = "run_time", defaultValue = "2") long runtime,
                                       @JsonProperty(value = "run_time_unit", defaultValue = "HOURS") TimeUnit runtimeUnit)
         {
             this.concurrency = concurrency;
+            this.virtual_threads = virtual_threads != null && virtual_threads;
+            if (this.virtual_threads && !VirtualThreads.isAvailable())
+                throw new IllegalArgumentException(String.format("virtual_threads is set, but virtual threads are not available in this JVM (%s). " +
+                                                                 "Use Java 21 or later, or run on platform threads.",
+                                                                 System.getProperty("java.version")));
             this.visitorFactories = visitors;
             this.run_time = runtime;
             this.run_time_unit = runtimeUnit;
@@ -547,7 +601,7 @@ public class Configuration
         @Override
         public Runner make(Run run, Configuration config)
         {
-            return new Runner.ConcurrentRunner(run, config, concurrency, visitorFactories, run_time, run_time_unit);
+            return new Runner.ConcurrentRunner(run, config, concurrency, virtual_threads, visitorFactories, run_time, run_time_unit);
         }
     }
 
@@ -609,14 +663,28 @@ public class Configuration
     @JsonTypeName("quiescent_checker")
     public static class QuiescentCheckerConfig implements ModelConfiguration
     {
-        @JsonCreator
+        public final Reconciler.PartitionStateKind partition_state;
+        public final int partition_cache_size;
+        public final boolean streaming;
+
         public QuiescentCheckerConfig()
         {
+            this(null, null, null);
+        }
+
+        @JsonCreator
+        public QuiescentCheckerConfig(@JsonProperty(value = "partition_state", defaultValue = "TREE_MAP") Reconciler.PartitionStateKind partition_state,
+                                      @JsonProperty(value = "partition_cache_size", defaultValue = "128") Integer partition_cache_size,
+                                      @JsonProperty(value = "streaming", defaultValue = "false") Boolean streaming)
+        {
+            this.partition_state = partition_state == null ? Reconciler.PartitionStateKind.TREE_MAP : partition_state;
+            this.partition_cache_size = partition_cache_size == null ? Reconciler.DEFAULT_PARTITION_CACHE_SIZE : partition_cache_size;
+            this.streaming = streaming != null && streaming;
         }
 
         public Model make(Run run)
         {
-            return new QuiescentChecker(run);
+            return new QuiescentChecker(run, new Reconciler(run, partition_cache_size, partition_state), streaming);
         }
     }
 
@@ -645,18 +713,27 @@ public class Configuration
     {
         public final int window_size;
         public final int slide_after_repeats;
+        public final int index_capacity;
+
+        public DefaultPDSelectorConfiguration(int window_size,
+                                              int slide_after_repeats)
+        {
+            this(window_size, slide_after_repeats, null);
+        }
 
         @JsonCreator
         public DefaultPDSelectorConfiguration(@JsonProperty(value = "window_size", defaultValue = "10") int window_size,
-                                              @JsonProperty(value = "slide_after_repeats", defaultValue = "100") int slide_after_repeats)
+                                              @JsonProperty(value = "slide_after_repeats", defaultValue = "100") int slide_after_repeats,
+                                              @JsonProperty(value = "index_capacity", defaultValue = "16384") Integer index_capacity)
         {
             this.window_size = window_size;
             this.slide_after_repeats = slide_after_repeats;
+            this.index_capacity = index_capacity == null ? 16384 : index_capacity;
         }
 
         public OpSelectors.PdSelector make(OpSelectors.Rng rng)
         {
-            return new OpSelectors.DefaultPdSelector(rng, window_size, slide_after_repeats);
+            return new OpSelectors.DefaultPdSelector(rng, window_size, slide_after_repeats, index_capacity);
         }
     }
 
@@ -931,17 +1008,28 @@ public class Configuration
     public static class MutatingVisitorConfiguation implements VisitorConfiguration
     {
         public final RowVisitorConfiguration row_visitor;
+        public final int max_in_flight_lts;
+        public final int lts_lease_size;
+
+        public MutatingVisitorConfiguation(RowVisitorConfiguration row_visitor)
+        {
+            this(row_visitor, null, null);
+        }
 
         @JsonCreator
-        public MutatingVisitorConfiguation(@JsonProperty("row_visitor") RowVisitorConfiguration row_visitor)
+        public MutatingVisitorConfiguation(@JsonProperty("row_visitor") RowVisitorConfiguration row_visitor,
+                                           @JsonProperty(value = "max_in_flight_lts", defaultValue = "1") Integer max_in_flight_lts,
+                                           @JsonProperty(value = "lts_lease_size", defaultValue = "1") Integer lts_lease_size)
         {
             this.row_visitor = row_visitor;
+            this.max_in_flight_lts = max_in_flight_lts == null ? 1 : max_in_flight_lts;
+            this.lts_lease_size = lts_lease_size == null ? 1 : lts_lease_size;
         }
 
         @Override
         public Visitor make(Run run)
         {
-            return new MutatingVisitor(run, row_visitor::make);
+            return new MutatingVisitor(run, row_visitor::make, max_in_flight_lts, lts_lease_size);
         }
     }
 
@@ -949,17 +1037,25 @@ public class Configuration
     public static class LoggingVisitorConfiguration implements VisitorConfiguration
     {
         protected final RowVisitorConfiguration row_visitor;
+        public final boolean binary;
+
+        public LoggingVisitorConfiguration(RowVisitorConfiguration row_visitor)
+        {
+            this(row_visitor, false);
+        }
 
         @JsonCreator
-        public LoggingVisitorConfiguration(@JsonProperty("row_visitor") RowVisitorConfiguration row_visitor)
+        public LoggingVisitorConfiguration(@JsonProperty("row_visitor") RowVisitorConfiguration row_visitor,
+                                           @JsonProperty(value = "binary", defaultValue = "false") Boolean binary)
         {
             this.row_visitor = row_visitor;
+            this.binary = binary != null && binary;
         }
 
         @Override
         public Visitor make(Run run)
         {
-            return new LoggingVisitor(run, row_visitor::make);
+            return new LoggingVisitor(run, row_visitor::make, binary);
         }
     }
 
@@ -1012,24 +1108,35 @@ public class Configuration
         public final int trigger_after;
         public final int queries;
         public final Configuration.ModelConfiguration modelConfiguration;
+        public final boolean log_queries;
+
+        public RecentPartitionsValidatorConfiguration(int partition_count,
+                                                      int trigger_after,
+                                                      int queries,
+                                                      Configuration.ModelConfiguration model)
+        {
+            this(partition_count, trigger_after, queries, model, true);
+        }
 
         // TODO: make query selector configurable
         @JsonCreator
         public RecentPartitionsValidatorConfiguration(@JsonProperty("partition_count") int partition_count,
                                                       @JsonProperty("trigger_after") int trigger_after,
                                                       @JsonProperty("queries_per_partition") int queries,
-                                                      @JsonProperty("model") Configuration.ModelConfiguration model)
+                                                      @JsonProperty("model") Configuration.ModelConfiguration model,
+                                                      @JsonProperty(value = "log_queries", defaultValue = "true") Boolean log_queries)
         {
             this.partition_count = partition_count;
             this.queries = queries;
             this.trigger_after = trigger_after;
             this.modelConfiguration = model;
+            this.log_queries = log_queries == null || log_queries;
         }
 
         @Override
         public Visitor make(Run run)
         {
-            return new RecentValidator(partition_count, queries, trigger_after, run, modelConfiguration);
+            return new RecentValidator(partition_count, queries, trigger_after, run, modelConfiguration, log_queries);
         }
     }
 
@@ -1123,4 +1230,30 @@ public class Configuration
             return MetricReporter.NO_OP;
         }
     }
+
+    @JsonTypeName("histogram")
+    public static class HistogramMetricReporterConfiguration implements MetricReporterConfiguration
+    {
+        public final long report_interval_ms;
+        public final String output_file;
+        public final Integer http_port;
+        public final boolean jmx;
+
+        @JsonCreator
+        public HistogramMetricReporterConfiguration(@JsonProperty(value = "report_interval_ms", defaultValue = "10000") Long report_interval_ms,
+                                                    @JsonProperty(value = "output_file") String output_file,
+                                                    @JsonProperty(value = "http_port") Integer http_port,
+                                                    @JsonProperty(value = "jmx", defaultValue = "false") Boolean jmx)
+        {
+            this.report_interval_ms = report_interval_ms == null ? 10_000 : report_interval_ms;
+            this.output_file = output_file;
+            this.http_port = http_port;
+            this.jmx = jmx != null && jmx;
+        }
+
+        public MetricReporter make()
+        {
+            return new HistogramMetricReporter(report_interval_ms, output_file == null ? null : new File(output_file), http_port, jmx);
+        }
+    }
 }
@@ -0,0 +1,503 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import harry.model.OpSelectors;
+import harry.model.clock.ApproximateMonotonicClock;
+import harry.operations.Query;
+import harry.util.LatencyHistogram;
+
+/**
+ * Records latency histograms per operation kind, per batch and per validation query kind, and periodically writes
+ * a summary of the last interval: counts, throughput and latency percentiles, along with the lag between the
+ * latest started and the latest consecutively finished LTS.
+ *
+ * Recording methods only perform atomic increments, so they can be called from any thread without blocking. Summaries
+ * are computed by a single reporting thread, which diffs histogram snapshots between intervals.
+ *
+ * Results of the last interval can also be exposed live via JMX and via an HTTP endpoint on localhost, which
+ * serves them in Prometheus text format.
+ */
+public class HistogramMetricReporter implements MetricReporter, MetricReporterMXBean
+{
+    private static final Logger logger = LoggerFactory.getLogger(HistogramMetricReporter.class);
+
+    public static final String MBEAN_NAME = "harry:type=MetricReporter";
+
+    private final long intervalMillis;
+    private final File outputFile;
+    private final Integer httpPort;
+    private final boolean jmx;
+
+    private final LatencyHistogram[] operations = histograms(OpSelectors.OperationKind.values().length);
+    private final LatencyHistogram batches = new LatencyHistogram();
+    private final LatencyHistogram visits = new LatencyHistogram();
+    private final LatencyHistogram[] validations = histograms(Query.QueryKind.values().length);
+
+    private final LongAdder columnDeletes = new LongAdder();
+    private final LongAdder rowDeletes = new LongAdder();
+    private final LongAdder partitionDeletes = new LongAdder();
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder rangeDeletes = new LongAdder();
+    private final LongAdder validatedPartitions = new LongAdder();
+    private final LongAdder validatedRandomQueries = new LongAdder();
+
+    // Accessed only by the reporting thread
+    private final LatencyHistogram.Snapshot[] lastOperations = emptySnapshots(operations.length);
+    private LatencyHistogram.Snapshot lastBatches = LatencyHistogram.Snapshot.empty();
+    private LatencyHistogram.Snapshot lastVisits = LatencyHistogram.Snapshot.empty();
+    private final LatencyHistogram.Snapshot[] lastValidations = emptySnapshots(validations.length);
+    private long lastReportNanos;
+
+    private volatile Interval lastInterval = Interval.EMPTY;
+    private volatile Run run;
+    private ScheduledExecutorService reporter;
+    private PrometheusHttpServer httpServer;
+
+    /**
+     * @param outputFile file summaries are appended to; summaries are logged if it is {@code null}.
+     */
+    public HistogramMetricReporter(long intervalMillis, File outputFile)
+    {
+        this(intervalMillis, outputFile, null, false);
+    }
+
+    /**
+     * @param httpPort localhost port to serve metrics in Prometheus text format on; endpoint is disabled if it is {@code null}.
+     * @param jmx whether metrics should be registered as an MBean under {@link #MBEAN_NAME}.
+     */
+    public HistogramMetricReporter(long intervalMillis, File outputFile, Integer httpPort, boolean jmx)
+    {
+        if (intervalMillis <= 0)
+            throw new IllegalArgumentException("Reporting interval should be positive, but was " + intervalMillis);
+
+        this.intervalMillis = intervalMillis;
+        this.outputFile = outputFile;
+        this.httpPort = httpPort;
+        this.jmx = jmx;
+    }
+
+    public void columnDelete()
+    {
+        columnDeletes.increment();
+    }
+
+    public void rowDelete()
+    {
+        rowDeletes.increment();
+    }
+
+    public void partitionDelete()
+    {
+        partitionDeletes.increment();
+    }
+
+    public void insert()
+    {
+        inserts.increment();
+    }
+
+    public void rangeDelete()
+    {
+        rangeDeletes.increment();
+    }
+
+    public void validatePartition()
+    {
+        validatedPartitions.increment();
+    }
+
+    public void validateRandomQuery()
+    {
+        validatedRandomQueries.increment();
+    }
+
+    public void operation(OpSelectors.OperationKind kind, long latencyNanos)
+    {
+        operations[kind.ordinal()].record(latencyNanos);
+    }
+
+    public void batch(int size, long latencyNanos)
+    {
+        batches.record(latencyNanos);
+    }
+
+    public void validation(Query.QueryKind kind, long latencyNanos)
+    {
+        validations[kind.ordinal()].record(latencyNanos);
+    }
+
+    public void visit(long latencyNanos)
+    {
+        visits.record(latencyNanos);
+    }
+
+    public synchronized void start(Run run)
+    {
+        if (reporter != null)
+            return;
+
+        this.run = run;
+        lastReportNanos = System.nanoTime();
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "HistogramMetricReporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        if (jmx)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(MBEAN_NAME));
+            }
+            catch (Exception e)
+            {
+                logger.error("Could not register metrics MBean", e);
+            }
+        }
+
+        if (httpPort != null)
+            httpServer = PrometheusHttpServer.start(this, httpPort);
+    }
+
+    public synchronized void shutdown()
+    {
+        if (reporter == null)
+            return;
+
+        reporter.shutdown();
+        reporter = null;
+        report();
+
+        if (httpServer != null)
+        {
+            httpServer.stop();
+            httpServer = null;
+        }
+
+        if (jmx)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MBEAN_NAME));
+            }
+            catch (Exception e)
+            {
+                logger.error("Could not unregister metrics MBean", e);
+            }
+        }
+    }
+
+    private void report()
+    {
+        try
+        {
+            String summary = summary();
+            if (outputFile == null)
+            {
+                logger.info(summary);
+                return;
+            }
+
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile, true)))
+            {
+                writer.write(summary);
+                writer.newLine();
+            }
+        }
+        catch (Throwable t)
+        {
+            // Exceptions would cancel the scheduled task
+            logger.error("Could not write metrics summary", t);
+        }
+    }
+
+    synchronized String summary()
+    {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastReportNanos) / 1e9;
+        lastReportNanos = now;
+
+        LatencyHistogram.Snapshot[] intervalOperations = new LatencyHistogram.Snapshot[operations.length];
+        for (int i = 0; i < operations.length; i++)
+        {
+            LatencyHistogram.Snapshot current = operations[i].snapshot();
+            intervalOperations[i] = current.since(lastOperations[i]);
+            lastOperations[i] = current;
+        }
+
+        LatencyHistogram.Snapshot currentBatches = batches.snapshot();
+        LatencyHistogram.Snapshot intervalBatches = currentBatches.since(lastBatches);
+        lastBatches = currentBatches;
+
+        LatencyHistogram.Snapshot currentVisits = visits.snapshot();
+        LatencyHistogram.Snapshot intervalVisits = currentVisits.since(lastVisits);
+        lastVisits = currentVisits;
+
+        LatencyHistogram.Snapshot[] intervalValidations = new LatencyHistogram.Snapshot[validations.length];
+        for (int i = 0; i < validations.length; i++)
+        {
+            LatencyHistogram.Snapshot current = validations[i].snapshot();
+            intervalValidations[i] = current.since(lastValidations[i]);
+            lastValidations[i] = current;
+        }
+
+        Interval interval = new Interval(seconds, intervalOperations, intervalBatches, intervalVisits, intervalValidations);
+        lastInterval = interval;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Metrics for the last %.1fs:", seconds));
+
+        Run run = this.run;
+        if (run != null)
+        {
+            long started = run.tracker.maxStarted();
+            long finished = run.tracker.maxConsecutiveFinished();
+            sb.append(String.format("%n  LTS: max started %d, max consecutive finished %d, lag %d, reorder buffer %d",
+                                    started, finished, started - finished, run.tracker.reorderBufferSize()));
+        }
+
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            append(sb, kind.toString(), interval.operations[kind.ordinal()], seconds);
+
+        append(sb, "BATCH", interval.batches, seconds);
+        append(sb, "VISIT", interval.visits, seconds);
+
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            append(sb, "VALIDATE_" + kind, interval.validations[kind.ordinal()], seconds);
+
+        sb.append(String.format("%n  Totals: inserts %d, column deletes %d, row deletes %d, range deletes %d, partition deletes %d, " +
+                                "validated partitions %d, validated random queries %d",
+                                inserts.sum(), columnDeletes.sum(), rowDeletes.sum(), rangeDeletes.sum(), partitionDeletes.sum(),
+                                validatedPartitions.sum(), validatedRandomQueries.sum()));
+        return sb.toString();
+    }
+
+    /**
+     * Histograms of the last completed reporting interval.
+     */
+    Interval lastInterval()
+    {
+        return lastInterval;
+    }
+
+    long operationCount(OpSelectors.OperationKind kind)
+    {
+        return operations[kind.ordinal()].snapshot().count();
+    }
+
+    long batchCount()
+    {
+        return batches.snapshot().count();
+    }
+
+    long visitCount()
+    {
+        return visits.snapshot().count();
+    }
+
+    long validationCount(Query.QueryKind kind)
+    {
+        return validations[kind.ordinal()].snapshot().count();
+    }
+
+    public Map<String, Long> getOperationCounts()
+    {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            counts.put(kind.toString(), operationCount(kind));
+        counts.put("BATCH", batchCount());
+        counts.put("VISIT", visitCount());
+        return counts;
+    }
+
+    public Map<String, Double> getOperationRates()
+    {
+        Interval interval = lastInterval;
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            rates.put(kind.toString(), interval.operations[kind.ordinal()].count() / interval.seconds);
+        rates.put("BATCH", interval.batches.count() / interval.seconds);
+        rates.put("VISIT", interval.visits.count() / interval.seconds);
+        return rates;
+    }
+
+    public Map<String, Double> getOperationLatencyMillis()
+    {
+        Interval interval = lastInterval;
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            putLatencies(latencies, kind.toString(), interval.operations[kind.ordinal()]);
+        putLatencies(latencies, "BATCH", interval.batches);
+        putLatencies(latencies, "VISIT", interval.visits);
+        return latencies;
+    }
+
+    public Map<String, Long> getValidationCounts()
+    {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            counts.put(kind.toString(), validationCount(kind));
+        return counts;
+    }
+
+    public Map<String, Double> getValidationRates()
+    {
+        Interval interval = lastInterval;
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            rates.put(kind.toString(), interval.validations[kind.ordinal()].count() / interval.seconds);
+        return rates;
+    }
+
+    public Map<String, Double> getValidationLatencyMillis()
+    {
+        Interval interval = lastInterval;
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            putLatencies(latencies, kind.toString(), interval.validations[kind.ordinal()]);
+        return latencies;
+    }
+
+    public long getMaxStartedLts()
+    {
+        Run run = this.run;
+        return run == null ? -1 : run.tracker.maxStarted();
+    }
+
+    public long getMaxConsecutiveFinishedLts()
+    {
+        Run run = this.run;
+        return run == null ? -1 : run.tracker.maxConsecutiveFinished();
+    }
+
+    public long getReorderBufferSize()
+    {
+        Run run = this.run;
+        return run == null ? 0 : run.tracker.reorderBufferSize();
+    }
+
+    public int getClockEpochs()
+    {
+        ApproximateMonotonicClock clock = approximateClock();
+        return clock == null ? -1 : clock.epochs();
+    }
+
+    public double getClockEpochUsage()
+    {
+        ApproximateMonotonicClock clock = approximateClock();
+        return clock == null ? -1 : clock.epochUsage();
+    }
+
+    /**
+     * Clock of the run, if it tracks epochs.
+     */
+    ApproximateMonotonicClock approximateClock()
+    {
+        Run run = this.run;
+        if (run == null || !(run.clock instanceof ApproximateMonotonicClock))
+            return null;
+        return (ApproximateMonotonicClock) run.clock;
+    }
+
+    private static void putLatencies(Map<String, Double> latencies, String name, LatencyHistogram.Snapshot interval)
+    {
+        latencies.put(name + ".p50", interval.quantile(0.5) / 1e6);
+        latencies.put(name + ".p99", interval.quantile(0.99) / 1e6);
+        latencies.put(name + ".p999", interval.quantile(0.999) / 1e6);
+        latencies.put(name + ".max", interval.max() / 1e6);
+    }
+
+    private static void append(StringBuilder sb, String name, LatencyHistogram.Snapshot interval, double seconds)
+    {
+        if (interval.count() == 0)
+            return;
+
+        sb.append(String.format("%n  %s: count %d, %.1f/s, mean %.3fms, p50 %.3fms, p99 %.3fms, p999 %.3fms, max %.3fms",
+                                name,
+                                interval.count(),
+                                interval.count() / seconds,
+                                interval.mean() / 1e6,
+                                interval.quantile(0.5) / 1e6,
+                                interval.quantile(0.99) / 1e6,
+                                interval.quantile(0.999) / 1e6,
+                                interval.max() / 1e6));
+    }
+
+    private static LatencyHistogram[] histograms(int count)
+    {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++)
+            histograms[i] = new LatencyHistogram();
+        return histograms;
+    }
+
+    private static LatencyHistogram.Snapshot[] emptySnapshots(int count)
+    {
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[count];
+        for (int i = 0; i < count; i++)
+            snapshots[i] = LatencyHistogram.Snapshot.empty();
+        return snapshots;
+    }
+
+    static class Interval
+    {
+        static final Interval EMPTY = new Interval(1,
+                                                   emptySnapshots(OpSelectors.OperationKind.values().length),
+                                                   LatencyHistogram.Snapshot.empty(),
+                                                   LatencyHistogram.Snapshot.empty(),
+                                                   emptySnapshots(Query.QueryKind.values().length));
+
+        final double seconds;
+        final LatencyHistogram.Snapshot[] operations;
+        final LatencyHistogram.Snapshot batches;
+        final LatencyHistogram.Snapshot visits;
+        final LatencyHistogram.Snapshot[] validations;
+
+        Interval(double seconds,
+                 LatencyHistogram.Snapshot[] operations,
+                 LatencyHistogram.Snapshot batches,
+                 LatencyHistogram.Snapshot visits,
+                 LatencyHistogram.Snapshot[] validations)
+        {
+            this.seconds = seconds;
+            this.operations = operations;
+            this.batches = batches;
+            this.visits = visits;
+            this.validations = validations;
+        }
+    }
+}
@@ -18,6 +18,9 @@
 
 package harry.core;
 
+import harry.model.OpSelectors;
+import harry.operations.Query;
+
 public interface MetricReporter
 {
     void columnDelete();
@@ -29,6 +32,25 @@ public interface MetricReporter
     void validatePartition();
     void validateRandomQuery();
 
+    /**
+     * Operations are executed in batches, so latency of an operation is the latency of the batch it was a part of.
+     */
+    default void operation(OpSelectors.OperationKind kind, long latencyNanos) {}
+    default void batch(int size, long latencyNanos) {}
+    default void validation(Query.QueryKind kind, long latencyNanos) {}
+
+    /**
+     * Latency of a visit scheduled by a rate-limited runner, measured from its intended start time rather than
+     * from the time it actually started.
+     */
+    default void visit(long latencyNanos) {}
+
+    /**
+     * Called once the run is created, so that reporters can start observing its state.
+     */
+    default void start(Run run) {}
+    default void shutdown() {}
+
     interface MetricReporterFactory
     {
         MetricReporter make();
@@ -0,0 +1,50 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.core;
+
+import java.util.Map;
+
+/**
+ * Live metrics exposed over JMX. Rates and latencies describe the last completed reporting interval,
+ * counts are totals since the start of the run. Latencies are keyed by name and percentile, e.g. {@code WRITE.p99}.
+ */
+public interface MetricReporterMXBean
+{
+    Map<String, Long> getOperationCounts();
+    Map<String, Double> getOperationRates();
+    Map<String, Double> getOperationLatencyMillis();
+
+    Map<String, Long> getValidationCounts();
+    Map<String, Double> getValidationRates();
+    Map<String, Double> getValidationLatencyMillis();
+
+    long getMaxStartedLts();
+    long getMaxConsecutiveFinishedLts();
+    long getReorderBufferSize();
+
+    /**
+     * Number of epochs the clock went through, or -1 if the clock does not track epochs.
+     */
+    int getClockEpochs();
+
+    /**
+     * Fraction of LTS available in the current clock epoch that are already drawn, or -1 if the clock does not track epochs.
+     */
+    double getClockEpochUsage();
+}
@@ -0,0 +1,195 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import harry.model.OpSelectors;
+import harry.model.clock.ApproximateMonotonicClock;
+import harry.operations.Query;
+import harry.util.LatencyHistogram;
+
+/**
+ * Serves metrics of {@link HistogramMetricReporter} on {@code http://localhost:<port>/metrics} in Prometheus text
+ * exposition format. Counters are totals since the start of the run; rates and latency quantiles describe the
+ * last completed reporting interval.
+ */
+public class PrometheusHttpServer
+{
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusHttpServer.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    private final HttpServer server;
+
+    private PrometheusHttpServer(HttpServer server)
+    {
+        this.server = server;
+    }
+
+    public static PrometheusHttpServer start(HistogramMetricReporter reporter, int port)
+    {
+        try
+        {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", exchange -> respond(exchange, render(reporter)));
+            server.start();
+            logger.info("Serving metrics on http://{}:{}/metrics", server.getAddress().getHostString(), server.getAddress().getPort());
+            return new PrometheusHttpServer(server);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not start metrics endpoint on port " + port, e);
+        }
+    }
+
+    public int port()
+    {
+        return server.getAddress().getPort();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    static String render(HistogramMetricReporter reporter)
+    {
+        HistogramMetricReporter.Interval interval = reporter.lastInterval();
+        StringBuilder sb = new StringBuilder();
+
+        header(sb, "harry_operations_total", "counter", "Operations executed since the start of the run.");
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            sample(sb, "harry_operations_total", kind(kind), reporter.operationCount(kind));
+
+        header(sb, "harry_operation_rate", "gauge", "Operations per second over the last reporting interval.");
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            sample(sb, "harry_operation_rate", kind(kind), interval.operations[kind.ordinal()].count() / interval.seconds);
+
+        header(sb, "harry_operation_latency_seconds", "gauge", "Operation latency quantiles over the last reporting interval.");
+        for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+            quantiles(sb, "harry_operation_latency_seconds", kind(kind), interval.operations[kind.ordinal()]);
+
+        header(sb, "harry_batches_total", "counter", "Batches executed since the start of the run.");
+        sample(sb, "harry_batches_total", "", reporter.batchCount());
+
+        header(sb, "harry_batch_rate", "gauge", "Batches per second over the last reporting interval.");
+        sample(sb, "harry_batch_rate", "", interval.batches.count() / interval.seconds);
+
+        header(sb, "harry_batch_latency_seconds", "gauge", "Batch latency quantiles over the last reporting interval.");
+        quantiles(sb, "harry_batch_latency_seconds", "", interval.batches);
+
+        header(sb, "harry_visits_total", "counter", "Visits scheduled by a rate-limited runner since the start of the run.");
+        sample(sb, "harry_visits_total", "", reporter.visitCount());
+
+        header(sb, "harry_visit_rate", "gauge", "Scheduled visits per second over the last reporting interval.");
+        sample(sb, "harry_visit_rate", "", interval.visits.count() / interval.seconds);
+
+        header(sb, "harry_visit_latency_seconds", "gauge", "Latency quantiles of scheduled visits, measured from their intended start time, over the last reporting interval.");
+        quantiles(sb, "harry_visit_latency_seconds", "", interval.visits);
+
+        header(sb, "harry_validations_total", "counter", "Validation queries executed since the start of the run.");
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            sample(sb, "harry_validations_total", kind(kind), reporter.validationCount(kind));
+
+        header(sb, "harry_validation_rate", "gauge", "Validation queries per second over the last reporting interval.");
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            sample(sb, "harry_validation_rate", kind(kind), interval.validations[kind.ordinal()].count() / interval.seconds);
+
+        header(sb, "harry_validation_latency_seconds", "gauge", "Validation latency quantiles over the last reporting interval.");
+        for (Query.QueryKind kind : Query.QueryKind.values())
+            quantiles(sb, "harry_validation_latency_seconds", kind(kind), interval.validations[kind.ordinal()]);
+
+        header(sb, "harry_lts_max_started", "gauge", "Largest started LTS.");
+        sample(sb, "harry_lts_max_started", "", reporter.getMaxStartedLts());
+
+        header(sb, "harry_lts_max_consecutive_finished", "gauge", "Largest LTS such that all LTS before it have finished.");
+        sample(sb, "harry_lts_max_consecutive_finished", "", reporter.getMaxConsecutiveFinishedLts());
+
+        header(sb, "harry_reorder_buffer_size", "gauge", "Finished LTS waiting for the earlier ones to finish.");
+        sample(sb, "harry_reorder_buffer_size", "", reporter.getReorderBufferSize());
+
+        ApproximateMonotonicClock clock = reporter.approximateClock();
+        if (clock != null)
+        {
+            header(sb, "harry_clock_epochs", "gauge", "Number of epochs the clock went through.");
+            sample(sb, "harry_clock_epochs", "", clock.epochs());
+
+            header(sb, "harry_clock_epoch_usage", "gauge", "Fraction of LTS available in the current clock epoch that are already drawn.");
+            sample(sb, "harry_clock_epoch_usage", "", clock.epochUsage());
+        }
+
+        return sb.toString();
+    }
+
+    private static String kind(Object kind)
+    {
+        return "kind=\"" + kind + '"';
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help)
+    {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void quantiles(StringBuilder sb, String name, String labels, LatencyHistogram.Snapshot interval)
+    {
+        String prefix = labels.isEmpty() ? "" : labels + ',';
+        for (double quantile : QUANTILES)
+            sample(sb, name, prefix + "quantile=\"" + quantile + '"', interval.quantile(quantile) / 1e9);
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value)
+    {
+        sb.append(name);
+        if (!labels.isEmpty())
+            sb.append('{').append(labels).append('}');
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, long value)
+    {
+        sb.append(name);
+        if (!labels.isEmpty())
+            sb.append('{').append(labels).append('}');
+        sb.append(' ').append(value).append('\n');
+    }
+}
@@ -26,6 +26,7 @@ import java.util.Objects;
 import java.util.function.Consumer;
 
 import harry.generators.DataGenerators;
+import harry.generators.KeyCache;
 import harry.model.sut.SystemUnderTest;
 import harry.operations.CompiledStatement;
 import harry.operations.Relation;
@@ -40,9 +41,18 @@ public class SchemaSpec
         public SchemaSpec make(long seed, SystemUnderTest sut);
     }
 
+    /**
+     * Number of inflated partition and, separately, clustering keys retained per schema; 0 disables caching.
+     */
+    public static final int KEY_CACHE_SIZE = Integer.getInteger("harry.schema.key-cache-size", 4096);
+
     public final DataGenerators.KeyGenerator pkGenerator;
     public final DataGenerators.KeyGenerator ckGenerator;
 
+    // The same partitions and rows are visited over and over, so keys are inflated once per descriptor
+    private final KeyCache pkCache;
+    private final KeyCache ckCache;
+
     private final boolean isCompactStorage;
 
     // These fields are immutable, and are safe as public
@@ -112,6 +122,8 @@ public class SchemaSpec
 
         this.pkGenerator = DataGenerators.createKeyGenerator(partitionKeys);
         this.ckGenerator = DataGenerators.createKeyGenerator(clusteringKeys);
+        this.pkCache = new KeyCache(KEY_CACHE_SIZE, pkGenerator::inflate);
+        this.ckCache = new KeyCache(clusteringKeys.isEmpty() ? 0 : KEY_CACHE_SIZE, ckGenerator::inflate);
 
         this.ALL_COLUMNS_BITSET = BitSet.allSet(regularColumns.size());
 
@@ -190,14 +202,30 @@ public class SchemaSpec
             consumer.accept(r.columnSpec, r.kind, r.value());
     }
 
+    /**
+     * Returned arrays are shared through the key cache, and should not be modified.
+     */
     public Object[] inflatePartitionKey(long pd)
     {
-        return pkGenerator.inflate(pd);
+        return pkCache.get(pd);
     }
 
+    /**
+     * Returned arrays are shared through the key cache, and should not be modified.
+     */
     public Object[] inflateClusteringKey(long cd)
     {
-        return ckGenerator.inflate(cd);
+        return ckCache.get(cd);
+    }
+
+    public KeyCache partitionKeyCache()
+    {
+        return pkCache;
+    }
+
+    public KeyCache clusteringKeyCache()
+    {
+        return ckCache;
     }
 
     public Object[] inflateRegularColumns(long[] vds)
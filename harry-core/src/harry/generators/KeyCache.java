@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.generators;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Fixed-size direct-mapped cache of inflated keys by their descriptor. A newer descriptor replaces the one that maps
+ * to the same slot, so the number of retained keys never exceeds the capacity, however long the run is.
+ *
+ * Inflation is a pure function of the descriptor, so concurrent misses on the same slot can race without harm: all of
+ * them produce equal keys, and whichever is published last is retained. Cached arrays are shared between callers,
+ * and should not be modified.
+ */
+public class KeyCache
+{
+    // Entry object with its descriptor, key reference and size, plus the header of the key array
+    private static final int ENTRY_OVERHEAD = 32 + 16;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final LongFunction<Object[]> inflate;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    /**
+     * @param capacity maximum number of cached keys, rounded up to a power of two; caching is disabled if it is 0.
+     * @param inflate   inflates a key from its descriptor.
+     */
+    public KeyCache(int capacity, LongFunction<Object[]> inflate)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity should not be negative, but was " + capacity);
+
+        this.inflate = inflate;
+
+        if (capacity == 0)
+        {
+            this.entries = null;
+            this.mask = -1;
+        }
+        else
+        {
+            int slots = Integer.highestOneBit(capacity);
+            if (slots < capacity)
+                slots <<= 1;
+            this.entries = new AtomicReferenceArray<>(slots);
+            this.mask = slots - 1;
+        }
+    }
+
+    public Object[] get(long descriptor)
+    {
+        if (entries == null)
+        {
+            misses.increment();
+            return inflate.apply(descriptor);
+        }
+
+        int slot = (int) (descriptor ^ (descriptor >>> 32)) & mask;
+        Entry entry = entries.get(slot);
+        if (entry != null && entry.descriptor == descriptor)
+        {
+            hits.increment();
+            return entry.key;
+        }
+
+        misses.increment();
+        Object[] key = inflate.apply(descriptor);
+        Entry inserted = new Entry(descriptor, key);
+        Entry replaced = entries.getAndSet(slot, inserted);
+        if (replaced == null)
+        {
+            size.incrementAndGet();
+            estimatedBytes.addAndGet(inserted.estimatedBytes);
+        }
+        else
+        {
+            evictions.increment();
+            estimatedBytes.addAndGet(inserted.estimatedBytes - replaced.estimatedBytes);
+        }
+        return key;
+    }
+
+    public int capacity()
+    {
+        return entries == null ? 0 : entries.length();
+    }
+
+    public long size()
+    {
+        return size.get();
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+
+    public double hitRate()
+    {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Approximate heap footprint of the cached keys and entries, assuming compressed references.
+     */
+    public long estimatedBytes()
+    {
+        return estimatedBytes.get();
+    }
+
+    public String toString()
+    {
+        return "KeyCache{" +
+               "capacity=" + capacity() +
+               ", size=" + size() +
+               ", hitRate=" + String.format("%.3f", hitRate()) +
+               ", evictions=" + evictions() +
+               ", estimatedBytes=" + estimatedBytes() +
+               '}';
+    }
+
+    static long estimateBytes(Object[] key)
+    {
+        long bytes = ENTRY_OVERHEAD + 4L * key.length;
+        for (Object value : key)
+        {
+            if (value instanceof String)
+                bytes += 24 + 16 + ((String) value).length();
+            else if (value instanceof UUID)
+                bytes += 32;
+            else if (value instanceof Date || value instanceof Long || value instanceof Double)
+                bytes += 24;
+            else if (value != null)
+                bytes += 16;
+        }
+        return bytes;
+    }
+
+    private static class Entry
+    {
+        final long descriptor;
+        final Object[] key;
+        final long estimatedBytes;
+
+        Entry(long descriptor, Object[] key)
+        {
+            this.descriptor = descriptor;
+            this.key = key;
+            this.estimatedBytes = estimateBytes(key);
+        }
+    }
+}
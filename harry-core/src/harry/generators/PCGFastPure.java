@@ -44,11 +44,57 @@ public class PCGFastPure
         return (stream << 1) | 1;
     }
 
+    /**
+     * Powers of the multiplier, {@code MULTIPLIERS[i] = NEXT_MULTIPLIER^(2^i)}, and increments of the corresponding
+     * jumps for a unit stream increment. Increments of every jump are linear in the stream increment, so these two
+     * tables serve every stream, including the ones computed on the fly from descriptors.
+     */
+    private static final long[] MULTIPLIERS = new long[64];
+    private static final long[] INCREMENTS = new long[64];
+    private static final long INVERSE_MULTIPLIER;
+
+    static
+    {
+        long mult = NEXT_MULTIPLIER;
+        long plus = 1;
+        for (int i = 0; i < 64; i++)
+        {
+            MULTIPLIERS[i] = mult;
+            INCREMENTS[i] = plus;
+            plus *= (mult + 1);
+            mult *= mult;
+        }
+
+        // Newton's iteration doubles the number of correct low bits; any odd x is its own inverse modulo 8
+        long inverse = NEXT_MULTIPLIER;
+        for (int i = 0; i < 5; i++)
+            inverse *= 2 - NEXT_MULTIPLIER * inverse;
+        INVERSE_MULTIPLIER = inverse;
+    }
+
     public static long advanceState(long state, long steps, long stream)
     {
         long acc_mult = 1;
         long acc_plus = 0;
 
+        while (steps != 0)
+        {
+            int bit = Long.numberOfTrailingZeros(steps);
+            acc_mult *= MULTIPLIERS[bit];
+            acc_plus = acc_plus * MULTIPLIERS[bit] + INCREMENTS[bit];
+            steps &= steps - 1;
+        }
+        return (acc_mult * state) + acc_plus * streamIncrement(stream);
+    }
+
+    /**
+     * Reference implementation of {@link #advanceState}, rebuilding the jump table on every call.
+     */
+    public static long advanceStateIterative(long state, long steps, long stream)
+    {
+        long acc_mult = 1;
+        long acc_plus = 0;
+
         long cur_plus = streamIncrement(stream);
         long cur_mult = NEXT_MULTIPLIER;
 
@@ -73,7 +119,12 @@ public class PCGFastPure
 
     public static long previous(long state, long stream)
     {
-        return advance(state, -1, stream);
+        return shuffle(previousState(unshuffle(state), stream));
+    }
+
+    public static long previousState(long state, long stream)
+    {
+        return (state - streamIncrement(stream)) * INVERSE_MULTIPLIER;
     }
 
     public static long nextState(long state, long stream)
@@ -82,6 +133,34 @@ public class PCGFastPure
     }
 
     public static long distance(long curState, long newState, long stream)
+    {
+        if (curState == newState)
+            return 0;
+
+        long inc = streamIncrement(stream);
+
+        int bit = 0;
+        long distance = 0;
+
+        while (curState != newState)
+        {
+            long mask = 1L << bit;
+            if ((curState & mask) != (newState & mask))
+            {
+                curState = curState * MULTIPLIERS[bit] + INCREMENTS[bit] * inc;
+                distance |= mask;
+            }
+            assert ((curState & mask) == (newState & mask));
+            bit++;
+        }
+
+        return distance;
+    }
+
+    /**
+     * Reference implementation of {@link #distance}, rebuilding the jump table on every call.
+     */
+    public static long distanceIterative(long curState, long newState, long stream)
     {
         if (curState == newState)
             return 0;
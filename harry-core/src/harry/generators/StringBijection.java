@@ -18,19 +18,32 @@
 
 package harry.generators;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
-// TODO: document
+/**
+ * Maps each byte of a descriptor to one of 256 fixed-size, sorted nibbles, followed by a number of random characters
+ * derived from the descriptor. Strings compare in the same order as their descriptors, since nibbles are unique.
+ */
 public class StringBijection implements Bijections.Bijection<String>
 {
     public static final int NIBBLES_SIZE = 256;
+
+    // Open-addressing table from nibble key to nibble index + 1; 0 marks an empty slot. Filled to a quarter, lookups
+    // of generated nibbles take about 1.2 probes on average.
+    private static final int INVERSE_BITS = 10;
+    private static final int INVERSE_MASK = (1 << INVERSE_BITS) - 1;
+    private static final long NO_KEY = -1L;
+
     private final String[] nibbles;
-    private final Map<String, Integer> inverse;
+    // All nibbles, laid out back to back, so that inflate can copy them without going through Strings
+    private final char[] nibbleChars;
+    private final short[] inverse;
+    private final long[] keys;
+    // Whether nibble keys are the nibble characters themselves, packed 7 bits per character, rather than a hash
+    private final boolean packedKeys;
     private final int nibbleSize;
     private final int maxRandomBytes;
 
@@ -48,13 +61,33 @@ public class StringBijection implements Bijections.Bijection<String>
     {
         assert nibbles.length == NIBBLES_SIZE;
         this.nibbles = nibbles;
-        this.inverse = new HashMap<>();
+        this.nibbleChars = new char[NIBBLES_SIZE * nibbleSize];
+        this.inverse = new short[1 << INVERSE_BITS];
+        this.keys = new long[NIBBLES_SIZE];
         this.nibbleSize = nibbleSize;
 
         for (int i = 0; i < nibbles.length; i++)
         {
             assert nibbles[i].length() == nibbleSize;
-            inverse.put(nibbles[i], i);
+            nibbles[i].getChars(0, nibbleSize, nibbleChars, i * nibbleSize);
+        }
+
+        boolean packedKeys = nibbleSize * 7 < Long.SIZE;
+        for (char c : nibbleChars)
+            packedKeys &= c <= 0x7f;
+        this.packedKeys = packedKeys;
+
+        for (int i = 0; i < nibbles.length; i++)
+        {
+            keys[i] = key(nibbles[i], 0);
+            int slot = slot(keys[i]);
+            while (inverse[slot] != 0)
+            {
+                if (nibbles[inverse[slot] - 1].equals(nibbles[i]))
+                    throw new IllegalArgumentException(String.format("Duplicate nibble %s", nibbles[i]));
+                slot = (slot + 1) & INVERSE_MASK;
+            }
+            inverse[slot] = (short) (i + 1);
         }
 
         this.maxRandomBytes = maxRandomBytes;
@@ -62,18 +95,19 @@ public class StringBijection implements Bijections.Bijection<String>
 
     public String inflate(long descriptor)
     {
-        StringBuilder builder = new StringBuilder();
+        int nibblesLength = Long.BYTES * nibbleSize;
+        char[] chars = new char[nibblesLength + randomBytesLength(descriptor)];
         for (int i = 0; i < Long.BYTES; i++)
         {
             int idx = getByte(descriptor, i);
-            builder.append(nibbles[idx]);
+            System.arraycopy(nibbleChars, idx * nibbleSize, chars, i * nibbleSize, nibbleSize);
         }
 
-        appendRandomBytes(builder, descriptor);
+        appendRandomBytes(chars, nibblesLength, descriptor);
 
         // everything after this point can be just random, since strings are guaranteed
         // to have unique prefixes
-        return builder.toString();
+        return new String(chars);
     }
 
     public static int getByte(long l, int idx)
@@ -85,9 +119,28 @@ public class StringBijection implements Bijections.Bijection<String>
         return b;
     }
 
-
+    // Random "bytes" are appended as the decimal representation of each byte value; sizing and appending walk the
+    // same sequence, so that the string can be allocated at its final length.
     // TODO: shuld we switch to PCG here, too?
-    private void appendRandomBytes(StringBuilder builder, long descriptor)
+    private int randomBytesLength(long descriptor)
+    {
+        long rnd = RngUtils.next(descriptor);
+        int remaining = RngUtils.asInt(rnd, 0, maxRandomBytes);
+        int length = 0;
+
+        while (remaining > 0)
+        {
+            rnd = RngUtils.next(rnd);
+            for (int i = 0; i < remaining && i < Long.BYTES; i++)
+            {
+                length += decimalLength((int) (rnd >> (i * 8)) & 0xff);
+                remaining--;
+            }
+        }
+        return length;
+    }
+
+    private void appendRandomBytes(char[] chars, int offset, long descriptor)
     {
         long rnd = RngUtils.next(descriptor);
         int remaining = RngUtils.asInt(rnd, 0, maxRandomBytes);
@@ -97,20 +150,38 @@ public class StringBijection implements Bijections.Bijection<String>
             rnd = RngUtils.next(rnd);
             for (int i = 0; i < remaining && i < Long.BYTES; i++)
             {
-                builder.append((char) (rnd >> (i * 8)) & 0xff);
+                offset = appendDecimal(chars, offset, (int) (rnd >> (i * 8)) & 0xff);
                 remaining--;
             }
         }
     }
 
+    private static int decimalLength(int b)
+    {
+        return b < 10 ? 1 : b < 100 ? 2 : 3;
+    }
+
+    private static int appendDecimal(char[] chars, int offset, int b)
+    {
+        if (b >= 100)
+            chars[offset++] = (char) ('0' + b / 100);
+        if (b >= 10)
+            chars[offset++] = (char) ('0' + (b / 10) % 10);
+        chars[offset++] = (char) ('0' + b % 10);
+        return offset;
+    }
+
     public long deflate(String descriptor)
     {
         long res = 0;
         for (int i = 0; i < Long.BYTES; i++)
         {
-            String nibble = descriptor.substring(nibbleSize * i, nibbleSize * (i + 1));
-            assert inverse.containsKey(nibble) : String.format("Bad string: %s, %s", nibble, descriptor);
-            long idx = inverse.get(nibble);
+            long idx = nibbleIndex(descriptor, nibbleSize * i);
+            if (idx < 0)
+                throw new IllegalArgumentException(String.format("Bad string: %s, %s",
+                                                                 descriptor.substring(Math.min(descriptor.length(), nibbleSize * i),
+                                                                                      Math.min(descriptor.length(), nibbleSize * (i + 1))),
+                                                                 descriptor));
             if (i == 0)
                 idx ^= 0x80;
             res |= idx << (Long.BYTES - i - 1) * Byte.SIZE;
@@ -118,6 +189,59 @@ public class StringBijection implements Bijections.Bijection<String>
         return res;
     }
 
+    /**
+     * Index of the nibble starting at {@code offset} of the given string, or -1 if there is no such nibble.
+     */
+    private int nibbleIndex(String s, int offset)
+    {
+        if (s.length() < offset + nibbleSize)
+            return -1;
+
+        long key = key(s, offset);
+        if (packedKeys && key == NO_KEY)
+            return -1;
+
+        int slot = slot(key);
+        int idx;
+        while ((idx = inverse[slot] - 1) >= 0)
+        {
+            if (keys[idx] == key && (packedKeys || s.regionMatches(offset, nibbles[idx], 0, nibbleSize)))
+                return idx;
+            slot = (slot + 1) & INVERSE_MASK;
+        }
+        return -1;
+    }
+
+    /**
+     * Packed characters of the nibble starting at {@code offset}, which identify the nibble on their own, or
+     * {@link #NO_KEY} if it has characters no nibble has; or, if characters can't be packed, their hash.
+     */
+    private long key(String s, int offset)
+    {
+        long key = 0;
+        if (packedKeys)
+        {
+            for (int i = offset; i < offset + nibbleSize; i++)
+            {
+                char c = s.charAt(i);
+                if (c > 0x7f)
+                    return NO_KEY;
+                key = (key << 7) | c;
+            }
+        }
+        else
+        {
+            for (int i = offset; i < offset + nibbleSize; i++)
+                key = key * 31 + s.charAt(i);
+        }
+        return key;
+    }
+
+    private static int slot(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - INVERSE_BITS));
+    }
+
     public int compare(long l, long r)
     {
         for (int i = 0; i < Long.BYTES; i++)
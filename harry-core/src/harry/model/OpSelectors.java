@@ -19,10 +19,12 @@
 package harry.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
 
 import harry.core.Configuration;
 import harry.core.VisibleForTesting;
@@ -34,6 +36,7 @@ import harry.generators.RngUtils;
 import harry.generators.Surjections;
 import harry.generators.distribution.Distribution;
 import harry.util.BitSet;
+import harry.util.LongLongCache;
 
 import static harry.generators.DataGenerators.NIL_DESCR;
 import static harry.generators.DataGenerators.UNSET_DESCR;
@@ -70,6 +73,16 @@ public interface OpSelectors
         {
             return next(r, 0);
         }
+
+        /**
+         * Fills {@code into[k] = randomNumber(i[k], stream)} for the first {@code count} elements. {@code i} and
+         * {@code into} may be the same array.
+         */
+        default void randomNumbers(long[] i, long stream, long[] into, int count)
+        {
+            for (int k = 0; k < count; k++)
+                into[k] = randomNumber(i[k], stream);
+        }
     }
 
     /**
@@ -84,6 +97,13 @@ public interface OpSelectors
         long lts(long rts);
 
         long nextLts();
+
+        /**
+         * Draws {@code count} consecutive LTS at once, and returns the first one. The block has to be drawn
+         * atomically: no LTS in it may be handed out to any other caller.
+         */
+        long nextLts(int count);
+
         long peek();
 
         Configuration.ClockConfiguration toConfig();
@@ -180,26 +200,47 @@ public interface OpSelectors
 
         public long[] vds(long pd, long cd, long lts, long opId, OperationKind opType, SchemaSpec schema)
         {
-            BitSet setColumns = columnMask(pd, lts, opId, opType);
-            return descriptors(pd, cd, lts, opId, schema.regularColumns, schema.regularColumnsMask(), setColumns, schema.regularColumnsOffset);
+            long[] vds = new long[schema.regularColumns.size()];
+            vds(pd, cd, lts, opId, opType, schema, vds);
+            return vds;
+        }
+
+        /**
+         * Writes value descriptors of regular columns into {@code into} instead of allocating a new array, so that
+         * callers generating many rows can reuse a single buffer of {@code schema.regularColumns.size()} elements.
+         */
+        public void vds(long pd, long cd, long lts, long opId, OperationKind opType, SchemaSpec schema, long[] into)
+        {
+            long setColumns = columnMaskBits(pd, lts, opId, opType);
+            descriptors(pd, cd, lts, opId, schema.regularColumns, schema.regularColumnsMask().toLong(), setColumns, schema.regularColumnsOffset, into);
         }
 
         public long[] sds(long pd, long cd, long lts, long opId, OperationKind opType, SchemaSpec schema)
         {
-            BitSet setColumns = columnMask(pd, lts, opId, opType);
-            return descriptors(pd, cd, lts, opId, schema.staticColumns, schema.staticColumnsMask(), setColumns, schema.staticColumnsOffset);
+            long[] sds = new long[schema.staticColumns.size()];
+            sds(pd, cd, lts, opId, opType, schema, sds);
+            return sds;
+        }
+
+        /**
+         * Same as {@link #vds(long, long, long, long, OperationKind, SchemaSpec, long[])}, for static columns.
+         */
+        public void sds(long pd, long cd, long lts, long opId, OperationKind opType, SchemaSpec schema, long[] into)
+        {
+            long setColumns = columnMaskBits(pd, lts, opId, opType);
+            descriptors(pd, cd, lts, opId, schema.staticColumns, schema.staticColumnsMask().toLong(), setColumns, schema.staticColumnsOffset, into);
         }
 
-        private long[] descriptors(long pd, long cd, long lts, long opId, List<ColumnSpec<?>> columns, BitSet mask, BitSet setColumns, int offset)
+        private void descriptors(long pd, long cd, long lts, long opId, List<ColumnSpec<?>> columns, long mask, long setColumns, int offset, long[] descriptors)
         {
             assert opId < opsPerModification(lts) * numberOfModifications(lts) : String.format("Operation id %d exceeds the maximum expected number of operations %d (%d * %d)",
                                                                                                opId, opsPerModification(lts) * numberOfModifications(lts), opsPerModification(lts), numberOfModifications(lts));
-            long[] descriptors = new long[columns.size()];
+            assert descriptors.length >= columns.size() : String.format("Buffer of size %d can not fit descriptors of %d columns", descriptors.length, columns.size());
 
-            for (int i = 0; i < descriptors.length; i++)
+            for (int i = 0; i < columns.size(); i++)
             {
                 int col = offset + i;
-                if (setColumns.isSet(col, mask))
+                if (BitSet.isSet(setColumns & mask, col))
                 {
                     ColumnSpec<?> spec = columns.get(i);
                     long vd = vd(pd, cd, lts, opId, col) & Bytes.bytePatternFor(spec.type.maxSize());
@@ -213,13 +254,39 @@ public interface OpSelectors
                     descriptors[i] = UNSET_DESCR;
                 }
             }
-            return descriptors;
         }
 
         public abstract OperationKind operationType(long pd, long lts, long opId);
 
+        /**
+         * Fills clustering descriptors, operation kinds and, unless {@code columnMasks} is null, column masks of all
+         * operations of the given LTS, indexed by operation id, and returns the number of operations. Produces the
+         * same descriptors as calling {@link #cd}, {@link #operationType} and {@link #columnMaskBits} for each
+         * operation id; arrays have to fit {@code numberOfModifications(lts) * opsPerModification(lts)} elements.
+         */
+        public int operations(long pd, long lts, SchemaSpec schema, long[] cds, OperationKind[] opTypes, long[] columnMasks)
+        {
+            int count = numberOfModifications(lts) * opsPerModification(lts);
+            for (int opId = 0; opId < count; opId++)
+            {
+                cds[opId] = cd(pd, lts, opId, schema);
+                opTypes[opId] = operationType(pd, lts, opId);
+                if (columnMasks != null)
+                    columnMasks[opId] = columnMaskBits(pd, lts, opId, opTypes[opId]);
+            }
+            return count;
+        }
+
         public abstract BitSet columnMask(long pd, long lts, long opId, OperationKind opType);
 
+        /**
+         * Same mask as {@link #columnMask}, as bits of a long.
+         */
+        public long columnMaskBits(long pd, long lts, long opId, OperationKind opType)
+        {
+            return columnMask(pd, lts, opId, opType).toLong();
+        }
+
         // TODO: why is this one unused?
         public abstract long rowId(long pd, long lts, long cd);
 
@@ -254,6 +321,12 @@ public interface OpSelectors
         {
             return PCGFastPure.previous(r, stream);
         }
+
+        public void randomNumbers(long[] i, long stream, long[] into, int count)
+        {
+            for (int k = 0; k < count; k++)
+                into[k] = PCGFastPure.shuffle(PCGFastPure.advanceState(seed, i[k], stream));
+        }
     }
 
     /**
@@ -274,17 +347,55 @@ public interface OpSelectors
         private final long switchAfter;
         private final long windowSize;
 
+        // Position -> pd and pd -> position indexes, filled as positions are visited; null if disabled
+        private final LongLongCache pdIndex;
+        private final LongLongCache positionIndex;
+        private final LongUnaryOperator computePd;
+        private final LongUnaryOperator computePosition;
+
         public DefaultPdSelector(OpSelectors.Rng rng, long windowSize, long slideAfterRepeats)
+        {
+            this(rng, windowSize, slideAfterRepeats, 0);
+        }
+
+        /**
+         * @param indexCapacity number of positions to keep pds for (and vice versa), so that both can be looked up
+         *                      without advancing the generator; 0 disables the index.
+         */
+        public DefaultPdSelector(OpSelectors.Rng rng, long windowSize, long slideAfterRepeats, int indexCapacity)
         {
             this.rng = rng;
             this.slideAfterRepeats = slideAfterRepeats;
             this.windowSize = windowSize;
             this.switchAfter = windowSize * slideAfterRepeats;
+
+            if (indexCapacity > 0)
+            {
+                this.pdIndex = new LongLongCache(indexCapacity);
+                this.positionIndex = new LongLongCache(indexCapacity);
+                this.computePd = (position) -> {
+                    long pd = rng.randomNumber(position, PARTITION_DESCRIPTOR_STREAM_ID);
+                    positionIndex.put(pd, position);
+                    return pd;
+                };
+                this.computePosition = (pd) -> rng.sequenceNumber(pd, PARTITION_DESCRIPTOR_STREAM_ID);
+            }
+            else
+            {
+                this.pdIndex = null;
+                this.positionIndex = null;
+                this.computePd = null;
+                this.computePosition = null;
+            }
         }
 
         protected long pd(long lts)
         {
-            return rng.randomNumber(positionFor(lts), PARTITION_DESCRIPTOR_STREAM_ID);
+            long position = positionFor(lts);
+            if (pdIndex == null)
+                return rng.randomNumber(position, PARTITION_DESCRIPTOR_STREAM_ID);
+
+            return pdIndex.get(position, computePd);
         }
 
         public long minLtsAt(long position)
@@ -298,8 +409,7 @@ public interface OpSelectors
 
         public long minLtsFor(long pd)
         {
-            long position = rng.sequenceNumber(pd, PARTITION_DESCRIPTOR_STREAM_ID);
-            return minLtsAt(position);
+            return minLtsAt(positionForPd(pd));
         }
 
         // TODO: add maxPosition to make it easier/more accessible for the components like sampler, etc
@@ -311,7 +421,10 @@ public interface OpSelectors
 
         public long positionForPd(long pd)
         {
-            return rng.sequenceNumber(pd, PARTITION_DESCRIPTOR_STREAM_ID);
+            if (positionIndex == null)
+                return rng.sequenceNumber(pd, PARTITION_DESCRIPTOR_STREAM_ID);
+
+            return positionIndex.get(pd, computePosition);
         }
 
         public long nextLts(long lts)
@@ -351,7 +464,7 @@ public interface OpSelectors
 
         public long maxLtsFor(long pd)
         {
-            long position = rng.sequenceNumber(pd, PARTITION_DESCRIPTOR_STREAM_ID);
+            long position = positionForPd(pd);
             return position * switchAfter + (slideAfterRepeats - 1) * windowSize;
         }
 
@@ -375,86 +488,104 @@ public interface OpSelectors
     public static class ColumnSelectorBuilder
     {
         private Map<OperationKind, Surjections.Surjection<BitSet>> m;
+        // Allocation-free equivalents of surjections in m, indexed by operation kind ordinal; null if there is none
+        private final LongUnaryOperator[] bits;
 
         public ColumnSelectorBuilder()
         {
             this.m = new EnumMap<>(OperationKind.class);
+            this.bits = new LongUnaryOperator[OperationKind.values().length];
         }
 
+        /**
+         * Same selection as {@code forAll(schema, BitSet.surjection(schema.allColumns.size()))}, but masks
+         * can also be computed as longs without creating bitsets.
+         */
         public ColumnSelectorBuilder forAll(SchemaSpec schema)
         {
-            return forAll(schema, BitSet.surjection(schema.allColumns.size()));
+            int columns = schema.allColumns.size();
+            LongUnaryOperator orig = (descriptor) -> BitSet.inflateBits(descriptor, columns);
+
+            for (OperationKind type : OperationKind.values())
+            {
+                long[] requiredMasks = requiredMasks(schema, type);
+                LongUnaryOperator gen = requiredMasks == null
+                                        ? orig
+                                        : (descriptor) -> orig.applyAsLong(acceptedDescriptor(descriptor, orig, requiredMasks));
+
+                this.m.put(type, (descriptor) -> BitSet.create(gen.applyAsLong(descriptor), columns));
+                this.bits[type.ordinal()] = gen;
+            }
+            return this;
         }
 
         // TODO: change bitsets to take into account _all_ columns not only regulars
         public ColumnSelectorBuilder forAll(SchemaSpec schema, Surjections.Surjection<BitSet> orig)
         {
+            Arrays.fill(bits, null);
+            LongUnaryOperator origBits = (descriptor) -> orig.inflate(descriptor).toLong();
             for (OperationKind type : OperationKind.values())
             {
-                Surjections.Surjection<BitSet> gen = orig;
-
-                switch (type)
-                {
-                    case UPDATE_WITH_STATICS:
-                    case DELETE_COLUMN_WITH_STATICS:
-                        gen = (descriptor) -> {
-                            long counter = 0;
-                            while (counter <= 100)
-                            {
-                                BitSet bitSet = orig.inflate(descriptor);
-                                if ((schema.regularColumns.isEmpty() || !bitSet.allUnset(schema.regularColumnsMask))
-                                    && (schema.staticColumns.isEmpty() || !bitSet.allUnset(schema.staticColumnsMask)))
-                                    return bitSet;
-
-                                descriptor = RngUtils.next(descriptor);
-                                counter++;
-                            }
-                            throw new RuntimeException(String.format("Could not generate a value after %d attempts.", counter));
-                        };
-                        break;
-                    // Can not have an UPDATE statement without anything to update
-                    case UPDATE:
-                        gen = descriptor -> {
-                            long counter = 0;
-                            while (counter <= 100)
-                            {
-                                BitSet bitSet = orig.inflate(descriptor);
-
-                                if (!bitSet.allUnset(schema.regularColumnsMask))
-                                    return bitSet;
-
-                                descriptor = RngUtils.next(descriptor);
-                                counter++;
-                            }
-                            throw new RuntimeException(String.format("Could not generate a value after %d attempts.", counter));
-                        };
-                        break;
-                    case DELETE_COLUMN:
-                        gen = (descriptor) -> {
-                            long counter = 0;
-                            while (counter <= 100)
-                            {
-                                BitSet bitSet = orig.inflate(descriptor);
-                                BitSet mask = schema.regularColumnsMask;
-
-                                if (!bitSet.allUnset(mask))
-                                    return bitSet;
-
-                                descriptor = RngUtils.next(descriptor);
-                                counter++;
-                            }
-                            throw new RuntimeException(String.format("Could not generate a value after %d attempts.", counter));
-                        };
-                        break;
-                }
+                long[] requiredMasks = requiredMasks(schema, type);
+                Surjections.Surjection<BitSet> gen = requiredMasks == null
+                                                     ? orig
+                                                     : (descriptor) -> orig.inflate(acceptedDescriptor(descriptor, origBits, requiredMasks));
                 this.m.put(type, gen);
             }
             return this;
         }
 
+        /**
+         * Masks of the columns of which at least one has to be selected for the given operation kind, or null if
+         * any selection will do.
+         */
+        private static long[] requiredMasks(SchemaSpec schema, OperationKind type)
+        {
+            switch (type)
+            {
+                case UPDATE_WITH_STATICS:
+                case DELETE_COLUMN_WITH_STATICS:
+                    if (schema.regularColumns.isEmpty())
+                        return schema.staticColumns.isEmpty() ? new long[0] : new long[]{ schema.staticColumnsMask.toLong() };
+                    if (schema.staticColumns.isEmpty())
+                        return new long[]{ schema.regularColumnsMask.toLong() };
+                    return new long[]{ schema.regularColumnsMask.toLong(), schema.staticColumnsMask.toLong() };
+                // Can not have an UPDATE statement without anything to update
+                case UPDATE:
+                case DELETE_COLUMN:
+                    return new long[]{ schema.regularColumnsMask.toLong() };
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Walks descriptors starting from the given one until the mask generated for it intersects every required
+         * mask, and returns that descriptor.
+         */
+        private static long acceptedDescriptor(long descriptor, LongUnaryOperator gen, long[] requiredMasks)
+        {
+            long counter = 0;
+            while (counter <= 100)
+            {
+                long bitSet = gen.applyAsLong(descriptor);
+                boolean accepted = true;
+                for (long mask : requiredMasks)
+                    accepted &= (bitSet & mask) != 0;
+
+                if (accepted)
+                    return descriptor;
+
+                descriptor = RngUtils.next(descriptor);
+                counter++;
+            }
+            throw new RuntimeException(String.format("Could not generate a value after %d attempts.", counter));
+        }
+
         public ColumnSelectorBuilder forWrite(Surjections.Surjection<BitSet> gen)
         {
             m.put(OperationKind.INSERT, gen);
+            bits[OperationKind.INSERT.ordinal()] = null;
             return this;
         }
 
@@ -466,6 +597,7 @@ public interface OpSelectors
         public ColumnSelectorBuilder forDelete(Surjections.Surjection<BitSet> gen)
         {
             m.put(OperationKind.DELETE_ROW, gen);
+            bits[OperationKind.DELETE_ROW.ordinal()] = null;
             return this;
         }
 
@@ -477,6 +609,7 @@ public interface OpSelectors
         public ColumnSelectorBuilder forColumnDelete(Surjections.Surjection<BitSet> gen)
         {
             m.put(OperationKind.DELETE_COLUMN, gen);
+            bits[OperationKind.DELETE_COLUMN.ordinal()] = null;
             return this;
         }
 
@@ -487,7 +620,21 @@ public interface OpSelectors
 
         public ColumnSelector build()
         {
-            return (kind, descriptor) -> m.get(kind).inflate(descriptor);
+            Map<OperationKind, Surjections.Surjection<BitSet>> m = this.m;
+            LongUnaryOperator[] bits = this.bits.clone();
+            return new ColumnSelector()
+            {
+                public BitSet columnMask(OperationKind kind, long descriptor)
+                {
+                    return m.get(kind).inflate(descriptor);
+                }
+
+                public long columnMaskBits(OperationKind kind, long descriptor)
+                {
+                    LongUnaryOperator gen = bits[kind.ordinal()];
+                    return gen == null ? columnMask(kind, descriptor).toLong() : gen.applyAsLong(descriptor);
+                }
+            };
         }
     }
 
@@ -498,6 +645,15 @@ public interface OpSelectors
     public static interface ColumnSelector
     {
         public BitSet columnMask(OperationKind operationKind, long descriptor);
+
+        /**
+         * Same mask as {@link #columnMask}, as bits of a long. Selectors that can compute it without creating
+         * a bitset should override this.
+         */
+        default long columnMaskBits(OperationKind operationKind, long descriptor)
+        {
+            return columnMask(operationKind, descriptor).toLong();
+        }
     }
 
     // TODO: this can actually be further improved upon. Maybe not generation-wise, this part seems to be ok,
@@ -712,12 +868,44 @@ public interface OpSelectors
             }
         }
 
+        /**
+         * Draws the partition-level operations mask and modification counts once per LTS, and the descriptor shared
+         * by operation kind and column mask once per operation, in a single bulk call to the {@link Rng}.
+         */
+        @Override
+        public int operations(long pd, long lts, SchemaSpec schema, long[] cds, OperationKind[] opTypes, long[] columnMasks)
+        {
+            BitSet partitionLevelOperationsMask = partitionLevelOperationsMask(pd, lts);
+            int count = partitionLevelOperationsMask.size();
+
+            // cds double as the buffer for bitset descriptors until the clusterings are drawn
+            for (int opId = 0; opId < count; opId++)
+                cds[opId] = pd ^ lts ^ opId;
+            rng.randomNumbers(cds, BITSET_IDX_STREAM, cds, count);
+
+            for (int opId = 0; opId < count; opId++)
+            {
+                long descriptor = cds[opId];
+                opTypes[opId] = operationSelector.inflate(descriptor, partitionLevelOperationsMask.isSet(opId));
+                if (columnMasks != null)
+                    columnMasks[opId] = columnSelector.columnMaskBits(opTypes[opId], descriptor);
+                cds[opId] = cd(pd, lts, opId, schema);
+            }
+            return count;
+        }
+
         public BitSet columnMask(long pd, long lts, long opId, OperationKind opType)
         {
             long descriptor = rng.randomNumber(pd ^ lts ^ opId, BITSET_IDX_STREAM);
             return columnSelector.columnMask(opType, descriptor);
         }
 
+        public long columnMaskBits(long pd, long lts, long opId, OperationKind opType)
+        {
+            long descriptor = rng.randomNumber(pd ^ lts ^ opId, BITSET_IDX_STREAM);
+            return columnSelector.columnMaskBits(opType, descriptor);
+        }
+
         public long vd(long pd, long cd, long lts, long opId, int col)
         {
             return rng.randomNumber(opId + 1, pd ^ cd ^ lts ^ col);
@@ -18,6 +18,7 @@
 
 package harry.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.function.Supplier;
 
 import harry.core.Run;
+import harry.core.VisibleForTesting;
 import harry.data.ResultSetRow;
 import harry.ddl.SchemaSpec;
 import harry.model.sut.SystemUnderTest;
@@ -42,6 +44,7 @@ public class QuiescentChecker implements Model
     protected final SystemUnderTest sut;
     protected final Reconciler reconciler;
     protected final SchemaSpec schema;
+    protected final boolean streaming;
 
     public QuiescentChecker(Run run)
     {
@@ -49,20 +52,101 @@ public class QuiescentChecker implements Model
     }
 
     public QuiescentChecker(Run run, Reconciler reconciler)
+    {
+        this(run, reconciler, false);
+    }
+
+    /**
+     * @param streaming whether results should be compared with the model row by row as they are fetched, instead of
+     *                  materialising the result set first. See {@link #validateStreaming}.
+     */
+    public QuiescentChecker(Run run, Reconciler reconciler, boolean streaming)
     {
         this.clock = run.clock;
         this.sut = run.sut;
         this.reconciler = reconciler;
         this.tracker = run.tracker;
         this.schema = run.schemaSpec;
+        this.streaming = streaming;
     }
 
     public void validate(Query query)
     {
-        validate(() -> SelectHelper.execute(sut, clock, query), query);
+        if (streaming)
+            validateStreaming(() -> SelectHelper.executeStreaming(sut, clock, query), query);
+        else
+            validate(() -> SelectHelper.execute(sut, clock, query), query);
     }
 
     protected void validate(Supplier<List<ResultSetRow>> rowsSupplier, Query query)
+    {
+        long maxSeenLts = assertQuiescent();
+        List<ResultSetRow> actualRows = rowsSupplier.get();
+        Reconciler.PartitionState partitionState = reconciler.inflatePartitionState(query.pd, maxSeenLts, query);
+        validate(partitionState, actualRows.iterator(), () -> actualRows, query);
+    }
+
+    /**
+     * Walks the result set lazily, comparing each row with the model as soon as it is fetched, and fails at the
+     * first mismatch. Rows are dropped once they are compared, so only the model side of the partition is held
+     * in memory. When validation fails, the observed state is described with the mismatched row and the rest of
+     * the same result, rather than by running the query again, since a live cluster could return different rows
+     * the second time.
+     */
+    protected void validateStreaming(Supplier<Iterator<ResultSetRow>> rowsSupplier,
+                                     Query query)
+    {
+        long maxSeenLts = assertQuiescent();
+        Reconciler.PartitionState partitionState = reconciler.inflatePartitionState(query.pd, maxSeenLts, query);
+        StreamedRows actual = new StreamedRows(rowsSupplier.get());
+        validate(partitionState, actual, actual::remaining, query);
+    }
+
+    /**
+     * Only keeps the last row it has returned, so that a mismatched row can still be reported together with
+     * the rows that were not read yet.
+     */
+    @VisibleForTesting
+    static class StreamedRows implements Iterator<ResultSetRow>
+    {
+        private final Iterator<ResultSetRow> delegate;
+        private ResultSetRow last;
+        private List<ResultSetRow> remaining;
+
+        StreamedRows(Iterator<ResultSetRow> delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        public boolean hasNext()
+        {
+            return delegate.hasNext();
+        }
+
+        public ResultSetRow next()
+        {
+            last = delegate.next();
+            return last;
+        }
+
+        /**
+         * The last returned row, followed by the ones that were not read yet. Drains the result on the first call.
+         */
+        List<ResultSetRow> remaining()
+        {
+            if (remaining == null)
+            {
+                remaining = new ArrayList<>();
+                if (last != null)
+                    remaining.add(last);
+                while (delegate.hasNext())
+                    remaining.add(delegate.next());
+            }
+            return remaining;
+        }
+    }
+
+    private long assertQuiescent()
     {
         long maxCompeteLts = tracker.maxConsecutiveFinished();
         long maxSeenLts = tracker.maxStarted();
@@ -71,13 +155,15 @@ public class QuiescentChecker implements Model
                                                            "Quiescent model can't be reliably used in such cases. " +
                                                            "Max complete: %d. Max seen: %d",
                                                            maxCompeteLts, maxSeenLts);
+        return maxSeenLts;
+    }
 
-        List<ResultSetRow> actualRows = rowsSupplier.get();
-        Iterator<ResultSetRow> actual = actualRows.iterator();
-        Reconciler.PartitionState partitionState = reconciler.inflatePartitionState(query.pd, maxSeenLts, query);
-        Collection<Reconciler.RowState> expectedRows = partitionState.rows(query.reverse);
-
-        Iterator<Reconciler.RowState> expected = expectedRows.iterator();
+    private void validate(Reconciler.PartitionState partitionState,
+                          Iterator<ResultSetRow> actual,
+                          Supplier<List<ResultSetRow>> actualRows,
+                          Query query)
+    {
+        Iterator<Reconciler.RowState> expected = partitionState.iterator(query.reverse);
 
         // It is possible that we only get a single row in response, and it is equal to static row
         if (partitionState.isEmpty() && partitionState.staticRow() != null && actual.hasNext())
@@ -85,7 +171,7 @@ public class QuiescentChecker implements Model
             ResultSetRow actualRowState = actual.next();
             if (actualRowState.cd != partitionState.staticRow().cd)
                 throw new ValidationException(partitionState.toString(schema),
-                                              toString(actualRows, schema),
+                                              toString(actualRows.get(), schema),
                                               "Found a row while model predicts statics only:" +
                                               "\nExpected: %s" +
                                               "\nActual: %s" +
@@ -97,7 +183,7 @@ public class QuiescentChecker implements Model
             {
                 if (actualRowState.vds[i] != NIL_DESCR || actualRowState.lts[i] != NO_TIMESTAMP)
                     throw new ValidationException(partitionState.toString(schema),
-                                                  toString(actualRows, schema),
+                                                  toString(actualRows.get(), schema),
                                                   "Found a row while model predicts statics only:" +
                                                   "\nActual: %s" +
                                                   "\nQuery: %s" +
@@ -115,7 +201,7 @@ public class QuiescentChecker implements Model
             // TODO: this is not necessarily true. It can also be that ordering is incorrect.
             if (actualRowState.cd != expectedRowState.cd)
                 throw new ValidationException(partitionState.toString(schema),
-                                              toString(actualRows, schema),
+                                              toString(actualRows.get(), schema),
                                               "Found a row in the model that is not present in the resultset:" +
                                               "\nExpected: %s" +
                                               "\nActual: %s" +
@@ -125,7 +211,7 @@ public class QuiescentChecker implements Model
 
             if (!Arrays.equals(actualRowState.vds, expectedRowState.vds))
                 throw new ValidationException(partitionState.toString(schema),
-                                              toString(actualRows, schema),
+                                              toString(actualRows.get(), schema),
                                               "Returned row state doesn't match the one predicted by the model:" +
                                               "\nExpected: %s (%s)" +
                                               "\nActual:   %s (%s)." +
@@ -136,7 +222,7 @@ public class QuiescentChecker implements Model
 
             if (!Arrays.equals(actualRowState.lts, expectedRowState.lts))
                 throw new ValidationException(partitionState.toString(schema),
-                                              toString(actualRows, schema),
+                                              toString(actualRows.get(), schema),
                                               "Timestamps in the row state don't match ones predicted by the model:" +
                                               "\nExpected: %s (%s)" +
                                               "\nActual:   %s (%s)." +
@@ -151,15 +237,17 @@ public class QuiescentChecker implements Model
 
         if (actual.hasNext() || expected.hasNext())
         {
+            // Describing actual rows may consume the rest of a streamed result
+            boolean actualHasMore = actual.hasNext();
             throw new ValidationException(partitionState.toString(schema),
-                                          toString(actualRows, schema),
+                                          toString(actualRows.get(), schema),
                                           "Expected results to have the same number of results, but %s result iterator has more results." +
                                           "\nExpected: %s" +
                                           "\nActual:   %s" +
                                           "\nQuery: %s",
-                                          actual.hasNext() ? "actual" : "expected",
-                                          expectedRows,
-                                          actualRows,
+                                          actualHasMore ? "actual" : "expected",
+                                          partitionState.rows(query.reverse),
+                                          actualRows.get(),
                                           query.toSelectStatement());
         }
     }
@@ -170,10 +258,20 @@ public class QuiescentChecker implements Model
                                        ResultSetRow actualRowState,
                                        Query query,
                                        SchemaSpec schemaSpec)
+    {
+        assertStaticRow(partitionState, () -> actualRows, staticRow, actualRowState, query, schemaSpec);
+    }
+
+    public static void assertStaticRow(Reconciler.PartitionState partitionState,
+                                       Supplier<List<ResultSetRow>> actualRows,
+                                       Reconciler.RowState staticRow,
+                                       ResultSetRow actualRowState,
+                                       Query query,
+                                       SchemaSpec schemaSpec)
     {
         if (!Arrays.equals(staticRow.vds, actualRowState.sds))
             throw new ValidationException(partitionState.toString(schemaSpec),
-                                          toString(actualRows, schemaSpec),
+                                          toString(actualRows.get(), schemaSpec),
                                           "Returned static row state doesn't match the one predicted by the model:" +
                                           "\nExpected: %s (%s)" +
                                           "\nActual:   %s (%s)." +
@@ -184,7 +282,7 @@ public class QuiescentChecker implements Model
 
         if (!Arrays.equals(staticRow.lts, actualRowState.slts))
             throw new ValidationException(partitionState.toString(schemaSpec),
-                                          toString(actualRows, schemaSpec),
+                                          toString(actualRows.get(), schemaSpec),
                                           "Timestamps in the static row state don't match ones predicted by the model:" +
                                           "\nExpected: %s (%s)" +
                                           "\nActual:   %s (%s)." +
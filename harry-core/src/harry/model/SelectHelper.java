@@ -20,6 +20,7 @@ package harry.model;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import harry.data.ResultSetRow;
@@ -194,11 +195,32 @@ public class SelectHelper
     public static List<ResultSetRow> execute(SystemUnderTest sut, OpSelectors.MonotonicClock clock, Query query)
     {
         CompiledStatement compiled = query.toSelectStatement();
-        Object[][] objects = sut.execute(compiled.cql(), SystemUnderTest.ConsistencyLevel.QUORUM, compiled.bindings());
+        Object[][] objects = sut.executePrepared(compiled, SystemUnderTest.ConsistencyLevel.QUORUM);
         List<ResultSetRow> result = new ArrayList<>();
         for (Object[] obj : objects)
             result.add(resultSetToRow(query.schemaSpec, clock, obj));
 
         return result;
     }
+
+    /**
+     * Lazy counterpart of {@link #execute(SystemUnderTest, OpSelectors.MonotonicClock, Query)}: rows are fetched
+     * from the system under test and deflated one at a time, as the iterator is consumed.
+     */
+    public static Iterator<ResultSetRow> executeStreaming(SystemUnderTest sut, OpSelectors.MonotonicClock clock, Query query)
+    {
+        Iterator<Object[]> rows = sut.executeStreaming(query.toSelectStatement(), SystemUnderTest.ConsistencyLevel.QUORUM);
+        return new Iterator<ResultSetRow>()
+        {
+            public boolean hasNext()
+            {
+                return rows.hasNext();
+            }
+
+            public ResultSetRow next()
+            {
+                return resultSetToRow(query.schemaSpec, clock, rows.next());
+            }
+        };
+    }
 }
@@ -153,13 +153,23 @@ public class ApproximateMonotonicClock implements OpSelectors.MonotonicClock
 
     @Override
     public long nextLts()
+    {
+        return nextLts(1);
+    }
+
+    /**
+     * Leased LTS are drawn before the next rebase, so they are mapped to RTS relative to the epoch they were drawn in,
+     * no matter when they are used, and count towards that epoch's capacity.
+     */
+    @Override
+    public long nextLts(int count)
     {
         long current = lts.get();
         while (true)
         {
             if (current >= 0)
             {
-                if (lts.compareAndSet(current, current + 1))
+                if (lts.compareAndSet(current, current + count))
                     return current;
 
                 current = lts.get();
@@ -199,6 +209,33 @@ public class ApproximateMonotonicClock implements OpSelectors.MonotonicClock
         }
     }
 
+    /**
+     * Number of epochs this clock has gone through so far.
+     */
+    public int epochs()
+    {
+        return idx;
+    }
+
+    public int historySize()
+    {
+        return historySize;
+    }
+
+    /**
+     * Fraction of LTS available in the current epoch that were already drawn. Once it reaches 1, the clock
+     * is exhausted and becomes defunct on the next rebase.
+     */
+    public double epochUsage()
+    {
+        int idx = this.idx;
+        long current = lts.get();
+        if (idx == 0 || current < 0)
+            return 0;
+
+        return (double) (current - get(idx - 1)) / periodMicros;
+    }
+
     public Configuration.ClockConfiguration toConfig()
     {
         int idx = this.idx;
@@ -0,0 +1,70 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.model.clock;
+
+import java.util.function.LongSupplier;
+
+import harry.model.OpSelectors;
+
+/**
+ * Hands out LTS from blocks of consecutive LTS drawn from the clock at once, so that threads that draw LTS
+ * frequently do not contend on the clock for each one of them.
+ *
+ * LTS are drawn from the clock when the block is leased, not when they are handed out, so their RTS are
+ * those of the epoch they were leased in. Every leased LTS still has to be visited: the model considers all
+ * LTS up to the largest started one, so the ones left in the lease have to be visited before the visitor
+ * stops (see {@link #remaining()}).
+ *
+ * Not thread-safe: each visiting thread should have its own lease.
+ */
+public class LtsLease implements LongSupplier
+{
+    private final OpSelectors.MonotonicClock clock;
+    private final int size;
+
+    private long next;
+    private long end;
+
+    public LtsLease(OpSelectors.MonotonicClock clock, int size)
+    {
+        if (size < 1)
+            throw new IllegalArgumentException("Lease size should be positive, but was " + size);
+
+        this.clock = clock;
+        this.size = size;
+    }
+
+    public long getAsLong()
+    {
+        if (next == end)
+        {
+            next = clock.nextLts(size);
+            end = next + size;
+        }
+        return next++;
+    }
+
+    /**
+     * Number of leased LTS that were not handed out yet.
+     */
+    public int remaining()
+    {
+        return (int) (end - next);
+    }
+}
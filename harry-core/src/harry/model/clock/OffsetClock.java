@@ -52,6 +52,11 @@ public class OffsetClock implements OpSelectors.MonotonicClock
         return lts.getAndIncrement();
     }
 
+    public long nextLts(int count)
+    {
+        return lts.getAndAdd(count);
+    }
+
     public long peek()
     {
         return lts.get();
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.model.sut;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache of prepared statements keyed by CQL text.
+ *
+ * Harry generates a limited number of statement shapes per schema, so the cache is expected to stabilise quickly.
+ * Once {@code maxSize} distinct statements are cached, new ones are not prepared at all, and {@link #get} returns
+ * {@code null}, in which case the caller should fall back to executing the statement unprepared.
+ *
+ * Statements are prepared outside of the map locks, so a slow prepare does not block (or pin the carrier of a
+ * virtual thread) callers preparing other statements. Threads racing on the same statement may both prepare it,
+ * and only one of the results is cached; prepare functions doing I/O should return a future rather than block.
+ */
+public class StatementCache<T>
+{
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    private final ConcurrentHashMap<String, T> statements = new ConcurrentHashMap<>();
+    private final Function<String, T> prepare;
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StatementCache(Function<String, T> prepare)
+    {
+        this(prepare, DEFAULT_MAX_SIZE);
+    }
+
+    public StatementCache(Function<String, T> prepare, int maxSize)
+    {
+        this.prepare = prepare;
+        this.maxSize = maxSize;
+    }
+
+    public T get(String cql)
+    {
+        T prepared = statements.get(cql);
+        if (prepared != null)
+        {
+            hits.increment();
+            return prepared;
+        }
+
+        misses.increment();
+        if (statements.size() >= maxSize)
+            return null;
+
+        prepared = prepare.apply(cql);
+        T existing = statements.putIfAbsent(cql, prepared);
+        return existing == null ? prepared : existing;
+    }
+
+    /**
+     * Removes the cached statement if it is still the given one, for example if preparing it has failed.
+     */
+    public void invalidate(String cql, T prepared)
+    {
+        statements.remove(cql, prepared);
+    }
+
+    public int size()
+    {
+        return statements.size();
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    public double hitRate()
+    {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void clear()
+    {
+        statements.clear();
+    }
+
+    public String toString()
+    {
+        return "StatementCache{" +
+               "size=" + size() +
+               ", hits=" + hits() +
+               ", misses=" + misses() +
+               '}';
+    }
+}
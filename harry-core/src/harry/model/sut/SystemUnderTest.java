@@ -18,6 +18,8 @@
 
 package harry.model.sut;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 
 import harry.operations.CompiledStatement;
@@ -51,6 +53,43 @@ public interface SystemUnderTest
 
     CompletableFuture<Object[][]> executeAsync(String statement, ConsistencyLevel cl, Object... bindings);
 
+    /**
+     * Executes the statement as a prepared one. Implementations that can prepare statements cache them by CQL text,
+     * others execute the statement as is.
+     */
+    default Object[][] executePrepared(String statement, ConsistencyLevel cl, Object... bindings)
+    {
+        return execute(statement, cl, bindings);
+    }
+
+    default Object[][] executePrepared(CompiledStatement statement, ConsistencyLevel cl)
+    {
+        return executePrepared(statement.cql(), cl, statement.bindings());
+    }
+
+    /**
+     * Executes a query and returns its rows lazily, so that callers can consume large results page by page without
+     * materialising them. Implementations that can not page results return an iterator over the full result.
+     */
+    default Iterator<Object[]> executeStreaming(CompiledStatement statement, ConsistencyLevel cl)
+    {
+        return Arrays.asList(executePrepared(statement, cl)).iterator();
+    }
+
+    default CompletableFuture<Object[][]> executePreparedAsync(String statement, ConsistencyLevel cl, Object... bindings)
+    {
+        return executeAsync(statement, cl, bindings);
+    }
+
+    /**
+     * Executes the statement as a prepared one. Implementations that can execute batches of prepared statements
+     * can prepare statements of a {@link CompiledStatement.Batch} individually.
+     */
+    default CompletableFuture<Object[][]> executePreparedAsync(CompiledStatement statement, ConsistencyLevel cl)
+    {
+        return executePreparedAsync(statement.cql(), cl, statement.bindings());
+    }
+
     interface SystemUnderTestFactory
     {
         SystemUnderTest create();
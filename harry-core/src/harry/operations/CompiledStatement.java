@@ -18,7 +18,10 @@
 
 package harry.operations;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class CompiledStatement
 {
@@ -46,6 +49,52 @@ public class CompiledStatement
         return new CompiledStatement(cql, bindings);
     }
 
+    /**
+     * Combines given statements into an unlogged batch. A single statement is returned as is.
+     */
+    public static CompiledStatement unloggedBatch(List<CompiledStatement> statements)
+    {
+        assert !statements.isEmpty();
+        if (statements.size() == 1)
+            return statements.get(0);
+
+        return new Batch(new ArrayList<>(statements));
+    }
+
+    /**
+     * Unlogged batch, that keeps individual statements, so that they can be prepared separately.
+     */
+    public static class Batch extends CompiledStatement
+    {
+        public final List<CompiledStatement> statements;
+
+        private Batch(List<CompiledStatement> statements)
+        {
+            super(batchCql(statements), batchBindings(statements));
+            this.statements = Collections.unmodifiableList(statements);
+        }
+
+        private static String batchCql(List<CompiledStatement> statements)
+        {
+            StringBuilder sb = new StringBuilder("BEGIN UNLOGGED BATCH\n");
+            for (int i = 0; i < statements.size(); i++)
+            {
+                if (i > 0)
+                    sb.append(" ");
+                sb.append(statements.get(i).cql());
+            }
+            return sb.append("\nAPPLY BATCH;").toString();
+        }
+
+        private static Object[] batchBindings(List<CompiledStatement> statements)
+        {
+            List<Object> bindings = new ArrayList<>();
+            for (CompiledStatement statement : statements)
+                Collections.addAll(bindings, statement.bindings());
+            return bindings.toArray();
+        }
+    }
+
     public String toString()
     {
         return "CompiledStatement{" +
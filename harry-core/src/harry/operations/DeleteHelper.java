@@ -144,11 +144,10 @@ public class DeleteHelper
         }
         b.append("FROM ")
          .append(schema.keyspace).append(".").append(schema.table)
-         .append(" USING TIMESTAMP ")
-         .append(ts)
-         .append(" WHERE ");
+         .append(" USING TIMESTAMP ? WHERE ");
 
         List<Object> bindings = new ArrayList<>();
+        bindings.add(ts);
 
         schema.inflateRelations(pd,
                                 relations,
@@ -27,6 +27,10 @@ import harry.generators.DataGenerators;
 
 public class WriteHelper
 {
+    /**
+     * Descriptor arrays are only read while inflating values and are not retained, so callers may pass
+     * reusable scratch buffers (see {@link harry.model.OpSelectors.DescriptorSelector#vds(long, long, long, long, harry.model.OpSelectors.OperationKind, SchemaSpec, long[])}).
+     */
     public static CompiledStatement inflateInsert(SchemaSpec schema,
                                                   long pd,
                                                   long cd,
@@ -39,7 +43,8 @@ public class WriteHelper
         Object[] staticColumns = sds == null ? null : schema.inflateStaticColumns(sds);
         Object[] regularColumns = schema.inflateRegularColumns(vds);
 
-        Object[] bindings = new Object[schema.allColumns.size()];
+        // All columns and a timestamp
+        Object[] bindings = new Object[schema.allColumns.size() + 1];
 
         StringBuilder b = new StringBuilder();
         b.append("INSERT INTO ")
@@ -64,9 +69,9 @@ public class WriteHelper
             b.append("?");
         }
 
-        b.append(") USING TIMESTAMP ")
-         .append(timestamp)
-         .append(";");
+        // Timestamp is bound rather than inlined, so that statements of the same shape share CQL text and can be prepared once
+        b.append(") USING TIMESTAMP ?;");
+        bindings[bindingsCount++] = timestamp;
 
         return new CompiledStatement(b.toString(), adjustArraySize(bindings, bindingsCount));
     }
@@ -94,23 +99,23 @@ public class WriteHelper
         Object[] staticColumns = sds == null ? null : schema.inflateStaticColumns(sds);
         Object[] regularColumns = schema.inflateRegularColumns(vds);
 
-        Object[] bindings = new Object[schema.allColumns.size()];
+        // All columns and a timestamp
+        Object[] bindings = new Object[schema.allColumns.size() + 1];
 
         StringBuilder b = new StringBuilder();
         b.append("UPDATE ")
          .append(schema.keyspace)
          .append('.')
          .append(schema.table)
-         .append(" USING TIMESTAMP ")
-         .append(timestamp)
-         .append(" SET ");
+         .append(" USING TIMESTAMP ? SET ");
 
-        int bindingsCount = 0;
-        bindingsCount += addSetStatements(b, bindings, schema.regularColumns, regularColumns, bindingsCount);
+        bindings[0] = timestamp;
+        int bindingsCount = 1;
+        bindingsCount += addSetStatements(b, bindings, schema.regularColumns, regularColumns, bindingsCount, true);
         if (staticColumns != null)
-            bindingsCount += addSetStatements(b, bindings, schema.staticColumns, staticColumns, bindingsCount);
+            bindingsCount += addSetStatements(b, bindings, schema.staticColumns, staticColumns, bindingsCount, bindingsCount == 1);
 
-        assert bindingsCount > 0 : "Can not have an UPDATE statement without any updates";
+        assert bindingsCount > 1 : "Can not have an UPDATE statement without any updates";
         b.append(" WHERE ");
 
         bindingsCount += addWhereStatements(b, bindings, schema.partitionKeys, partitionKey, bindingsCount, true);
@@ -123,9 +128,10 @@ public class WriteHelper
                                         Object[] bindings,
                                         List<ColumnSpec<?>> columns,
                                         Object[] values,
-                                        int bound)
+                                        int bound,
+                                        boolean firstStatement)
     {
-        return appendStatements(b, bindings, columns, values, bound, bound == 0, ", ", "%s = ?");
+        return appendStatements(b, bindings, columns, values, bound, firstStatement, ", ", "%s = ?");
     }
 
     private static int addWhereStatements(StringBuilder b,
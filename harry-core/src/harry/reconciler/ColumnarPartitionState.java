@@ -0,0 +1,388 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.reconciler;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import harry.ddl.ColumnSpec;
+import harry.ddl.SchemaSpec;
+import harry.operations.Query;
+import harry.util.BitSet;
+import harry.util.Ranges;
+
+import static harry.generators.DataGenerators.NIL_DESCR;
+import static harry.generators.DataGenerators.UNSET_DESCR;
+import static harry.model.Model.NO_TIMESTAMP;
+
+/**
+ * Partition state backed by primitive arrays: clustering descriptors are kept sorted in a single array,
+ * and values and timestamps are stored in flat row-major matrices, with one row-liveness bit per row.
+ *
+ * Row objects are only materialised when the state is iterated, which keeps allocation during
+ * inflation proportional to the number of rows rather than to the number of operations.
+ */
+public class ColumnarPartitionState extends Reconciler.PartitionState
+{
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarPartitionState.class);
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int columns;
+
+    private long[] cds;
+    private long[] vds;
+    private long[] lts;
+    private long[] liveness;
+    private int size;
+
+    public ColumnarPartitionState(SchemaSpec schema, long debugCd)
+    {
+        this(schema, debugCd, INITIAL_CAPACITY);
+    }
+
+    private ColumnarPartitionState(SchemaSpec schema, long debugCd, int capacity)
+    {
+        super(schema, debugCd);
+        this.columns = schema.regularColumns.size();
+        this.cds = new long[capacity];
+        this.vds = new long[capacity * columns];
+        this.lts = new long[capacity * columns];
+        this.liveness = new long[bitWords(capacity)];
+        this.size = 0;
+    }
+
+    protected void write(long cd,
+                         long[] vds,
+                         long lts,
+                         boolean writePrimaryKeyLiveness)
+    {
+        assert vds.length == columns;
+
+        int idx = Arrays.binarySearch(cds, 0, size, cd);
+        if (idx < 0)
+        {
+            idx = -(idx + 1);
+            insertRow(idx, cd);
+            int offset = idx * columns;
+            for (int i = 0; i < columns; i++)
+            {
+                if (vds[i] != UNSET_DESCR)
+                {
+                    this.vds[offset + i] = vds[i];
+                    this.lts[offset + i] = lts;
+                }
+                else
+                {
+                    this.vds[offset + i] = NIL_DESCR;
+                    this.lts[offset + i] = NO_TIMESTAMP;
+                }
+            }
+        }
+        else
+        {
+            int offset = idx * columns;
+            for (int i = 0; i < columns; i++)
+            {
+                if (vds[i] == UNSET_DESCR)
+                    continue;
+
+                long currentLts = this.lts[offset + i];
+                assert lts >= currentLts : String.format("Out-of-order LTS: %d. Max seen: %s", lts, currentLts); // sanity check; we're iterating in lts order
+
+                if (currentLts == lts)
+                {
+                    // Timestamp collision case
+                    ColumnSpec<?> column = schema.regularColumns.get(i);
+                    if (column.type.compareLexicographically(vds[i], this.vds[offset + i]) > 0)
+                        this.vds[offset + i] = vds[i];
+                }
+                else
+                {
+                    this.vds[offset + i] = vds[i];
+                    this.lts[offset + i] = lts;
+                }
+            }
+        }
+
+        if (writePrimaryKeyLiveness)
+            setLive(idx, true);
+    }
+
+    protected void delete(Ranges.Range range,
+                          long lts)
+    {
+        if (range.minBound > range.maxBound)
+            return;
+
+        int from = lowerBound(range.minBound, range.minInclusive);
+        int to = lowerBound(range.maxBound, !range.maxInclusive);
+        if (from >= to)
+            return;
+
+        if (debugCd != -1)
+        {
+            for (int i = from; i < to; i++)
+            {
+                if (cds[i] == debugCd)
+                    logger.info("Hiding {} at {} because of range tombstone {}", debugCd, lts, range);
+            }
+        }
+
+        removeRows(from, to);
+    }
+
+    protected void delete(long cd,
+                          long lts)
+    {
+        int idx = Arrays.binarySearch(cds, 0, size, cd);
+        if (idx < 0)
+            return;
+
+        for (int i = idx * columns, end = i + columns; i < end; i++)
+            assert lts >= this.lts[i] : String.format("Attempted to remove a row with a tombstone that has older timestamp (%d): %s", lts, materialise(idx));
+
+        removeRows(idx, idx + 1);
+    }
+
+    protected void deleteRegularColumns(long lts, long cd, int columnOffset, long columns, long mask)
+    {
+        int idx = Arrays.binarySearch(cds, 0, size, cd);
+        if (idx < 0)
+            return;
+
+        int offset = idx * this.columns;
+        boolean allNil = true;
+        for (int i = 0; i < this.columns; i++)
+        {
+            if (BitSet.isSet(columns & mask, columnOffset + i))
+            {
+                vds[offset + i] = NIL_DESCR;
+                this.lts[offset + i] = NO_TIMESTAMP;
+            }
+            else if (vds[offset + i] != NIL_DESCR)
+            {
+                allNil = false;
+            }
+        }
+
+        if (allNil && !isLive(idx))
+            delete(cd, lts);
+    }
+
+    protected void deleteRows()
+    {
+        Arrays.fill(liveness, 0L);
+        size = 0;
+    }
+
+    protected Reconciler.PartitionState filter(Query query)
+    {
+        ColumnarPartitionState filtered = new ColumnarPartitionState(schema, debugCd, Math.max(size, 1));
+        if (staticRow != null)
+            filtered.staticRow = staticRow.copy();
+
+        for (int i = 0; i < size; i++)
+        {
+            if (query.match(cds[i]))
+                filtered.appendRowFrom(this, i);
+            else if (debugCd != -1 && cds[i] == debugCd)
+                logger.info("Hiding {} because there was no query match", debugCd);
+        }
+        return filtered;
+    }
+
+    protected void retainMatching(Query query)
+    {
+        int retained = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (query.match(cds[i]))
+            {
+                if (retained != i)
+                    moveRow(i, retained);
+                retained++;
+            }
+            else if (debugCd != -1 && cds[i] == debugCd)
+            {
+                logger.info("Hiding {} because there was no query match", debugCd);
+            }
+        }
+
+        clearLiveness(retained, size);
+        size = retained;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public Iterator<Reconciler.RowState> iterator(boolean reverse)
+    {
+        return new Iterator<Reconciler.RowState>()
+        {
+            private int remaining = size;
+
+            public boolean hasNext()
+            {
+                return remaining > 0;
+            }
+
+            public Reconciler.RowState next()
+            {
+                if (remaining <= 0)
+                    throw new NoSuchElementException();
+
+                remaining--;
+                return materialise(reverse ? remaining : size - remaining - 1);
+            }
+        };
+    }
+
+    public Collection<Reconciler.RowState> rows(boolean reverse)
+    {
+        return new AbstractCollection<Reconciler.RowState>()
+        {
+            public Iterator<Reconciler.RowState> iterator()
+            {
+                return ColumnarPartitionState.this.iterator(reverse);
+            }
+
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    private Reconciler.RowState materialise(int idx)
+    {
+        int offset = idx * columns;
+        Reconciler.RowState row = new Reconciler.RowState(cds[idx],
+                                                          Arrays.copyOfRange(vds, offset, offset + columns),
+                                                          Arrays.copyOfRange(lts, offset, offset + columns));
+        row.hasPrimaryKeyLivenessInfo = isLive(idx);
+        return row;
+    }
+
+    /**
+     * Returns the index of the first row with a clustering descriptor greater than (or, if {@code inclusive}
+     * is set, equal to) the given one.
+     */
+    private int lowerBound(long cd, boolean inclusive)
+    {
+        int idx = Arrays.binarySearch(cds, 0, size, cd);
+        if (idx < 0)
+            return -(idx + 1);
+
+        return inclusive ? idx : idx + 1;
+    }
+
+    private void insertRow(int idx, long cd)
+    {
+        ensureCapacity(size + 1);
+
+        System.arraycopy(cds, idx, cds, idx + 1, size - idx);
+        System.arraycopy(vds, idx * columns, vds, (idx + 1) * columns, (size - idx) * columns);
+        System.arraycopy(lts, idx * columns, lts, (idx + 1) * columns, (size - idx) * columns);
+        for (int i = size; i > idx; i--)
+            setLive(i, isLive(i - 1));
+
+        cds[idx] = cd;
+        setLive(idx, false);
+        size++;
+    }
+
+    /**
+     * Removes rows in [from, to) range.
+     */
+    private void removeRows(int from, int to)
+    {
+        int removed = to - from;
+        System.arraycopy(cds, to, cds, from, size - to);
+        System.arraycopy(vds, to * columns, vds, from * columns, (size - to) * columns);
+        System.arraycopy(lts, to * columns, lts, from * columns, (size - to) * columns);
+        for (int i = to; i < size; i++)
+            setLive(i - removed, isLive(i));
+
+        clearLiveness(size - removed, size);
+        size -= removed;
+    }
+
+    private void moveRow(int from, int to)
+    {
+        cds[to] = cds[from];
+        System.arraycopy(vds, from * columns, vds, to * columns, columns);
+        System.arraycopy(lts, from * columns, lts, to * columns, columns);
+        setLive(to, isLive(from));
+    }
+
+    private void appendRowFrom(ColumnarPartitionState other, int idx)
+    {
+        ensureCapacity(size + 1);
+        cds[size] = other.cds[idx];
+        System.arraycopy(other.vds, idx * columns, vds, size * columns, columns);
+        System.arraycopy(other.lts, idx * columns, lts, size * columns, columns);
+        setLive(size, other.isLive(idx));
+        size++;
+    }
+
+    private void ensureCapacity(int required)
+    {
+        if (required <= cds.length)
+            return;
+
+        int capacity = Math.max(required, cds.length * 2);
+        cds = Arrays.copyOf(cds, capacity);
+        vds = Arrays.copyOf(vds, capacity * columns);
+        lts = Arrays.copyOf(lts, capacity * columns);
+        liveness = Arrays.copyOf(liveness, bitWords(capacity));
+    }
+
+    private boolean isLive(int idx)
+    {
+        return (liveness[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    private void setLive(int idx, boolean live)
+    {
+        if (live)
+            liveness[idx >>> 6] |= (1L << idx);
+        else
+            liveness[idx >>> 6] &= ~(1L << idx);
+    }
+
+    private void clearLiveness(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+            setLive(i, false);
+    }
+
+    private static int bitWords(int bits)
+    {
+        return (bits + 63) >>> 6;
+    }
+}
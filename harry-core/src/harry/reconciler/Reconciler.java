@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -54,6 +55,10 @@ import static harry.model.Model.NO_TIMESTAMP;
  * It is useful both as a testing/debugging tool (to avoid starting Cassandra
  * cluster to get a result set), and as a quiescent model checker.
  *
+ * Inflated partition states are query-independent and are kept in a bounded LRU cache, keyed by partition descriptor
+ * and the LTS they were inflated up to. Subsequent inflations of the same partition only replay LTS that were not
+ * covered by the cached state, and query-specific filtering is applied to a copy of the cached state.
+ *
  * TODO: it might be useful to actually record deletions instead of just removing values as we do right now.
  */
 public class Reconciler
@@ -62,6 +67,8 @@ public class Reconciler
 
     private static long STATIC_CLUSTERING = NIL_DESCR;
 
+    public static final int DEFAULT_PARTITION_CACHE_SIZE = 128;
+
     private final OpSelectors.DescriptorSelector descriptorSelector;
     private final OpSelectors.PdSelector pdSelector;
     private final QueryGenerator rangeSelector;
@@ -69,27 +76,87 @@ public class Reconciler
 
     private final Function<VisitExecutor, LtsVisitor> visitorFactory;
 
+    private final PartitionStateKind partitionStateKind;
+    private final int partitionCacheSize;
+    // Access-ordered, guarded by itself
+    private final LinkedHashMap<Long, CachedPartitionState> partitionCache;
+
     public Reconciler(Run run)
+    {
+        this(run, DEFAULT_PARTITION_CACHE_SIZE, PartitionStateKind.TREE_MAP);
+    }
+
+    public Reconciler(Run run, int partitionCacheSize, PartitionStateKind partitionStateKind)
     {
         this(run,
-             (processor) -> new GeneratingVisitor(run, processor));
+             (processor) -> new GeneratingVisitor(run, processor),
+             partitionCacheSize,
+             partitionStateKind);
     }
 
     public Reconciler(Run run,
                       Function<VisitExecutor, LtsVisitor> ltsVisitorFactory)
+    {
+        this(run, ltsVisitorFactory, DEFAULT_PARTITION_CACHE_SIZE, PartitionStateKind.TREE_MAP);
+    }
+
+    public Reconciler(Run run,
+                      Function<VisitExecutor, LtsVisitor> ltsVisitorFactory,
+                      int partitionCacheSize,
+                      PartitionStateKind partitionStateKind)
     {
         this.descriptorSelector = run.descriptorSelector;
         this.pdSelector = run.pdSelector;
         this.schema = run.schemaSpec;
         this.rangeSelector = run.rangeSelector;
         this.visitorFactory = ltsVisitorFactory;
+        this.partitionStateKind = partitionStateKind;
+        this.partitionCacheSize = partitionCacheSize;
+        this.partitionCache = new LinkedHashMap<Long, CachedPartitionState>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPartitionState> eldest)
+            {
+                return size() > partitionCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Storage layout used for inflated partition states. Both kinds produce identical results.
+     */
+    public enum PartitionStateKind
+    {
+        /**
+         * Row objects kept in a sorted map; cheap to modify, but allocates per row.
+         */
+        TREE_MAP,
+        /**
+         * Sorted primitive clustering array with flat value and timestamp matrices.
+         */
+        COLUMNAR;
+
+        public PartitionState create(SchemaSpec schema, long debugCd)
+        {
+            switch (this)
+            {
+                case TREE_MAP:
+                    return new TreeMapPartitionState(schema, debugCd);
+                case COLUMNAR:
+                    return new ColumnarPartitionState(schema, debugCd);
+                default:
+                    throw new IllegalStateException(this.toString());
+            }
+        }
     }
 
     private final long debugCd = Long.getLong("harry.reconciler.debug_cd", -1L);
 
     public PartitionState inflatePartitionState(final long pd, long maxLts, Query query)
     {
-        PartitionState partitionState = new PartitionState();
+        CachedPartitionState cached = takeCached(pd, maxLts);
+
+        final PartitionState partitionState = cached == null ? partitionStateKind.create(schema, debugCd) : cached.state;
+        long currentLts = cached == null ? pdSelector.minLtsFor(pd) : cached.nextLts;
 
         class Processor extends VisitExecutor
         {
@@ -98,6 +165,9 @@ public class Reconciler
             private final List<Ranges.Range> rangeDeletes = new ArrayList<>();
             private final List<ReplayingVisitor.Operation> writes = new ArrayList<>();
             private final List<ReplayingVisitor.Operation> columnDeletes = new ArrayList<>();
+            // Descriptor scratch buffers; partition state copies values out of them on write
+            private final long[] vds = new long[schema.regularColumns.size()];
+            private final long[] sds = new long[schema.staticColumns.size()];
 
             @Override
             protected void operation(long lts, long pd, long cd, long m, long opId, OpSelectors.OperationKind opType)
@@ -165,7 +235,8 @@ public class Reconciler
                 if (hadPartitionDeletion)
                     return;
 
-                outer: for (ReplayingVisitor.Operation op : writes)
+                Ranges rangeTombstones = rangeDeletes.isEmpty() ? Ranges.EMPTY : new Ranges(rangeDeletes);
+                for (ReplayingVisitor.Operation op : writes)
                 {
                     long opId = op.opId;
                     long cd = op.cd;
@@ -176,29 +247,20 @@ public class Reconciler
                         case UPDATE_WITH_STATICS:
                             // We could apply static columns during the first iteration, but it's more convenient
                             // to reconcile static-level deletions.
-                            partitionState.writeStaticRow(descriptorSelector.sds(pd, cd, lts, opId, op.opType, schema),
-                                                          lts);
+                            descriptorSelector.sds(pd, cd, lts, opId, op.opType, schema, sds);
+                            partitionState.writeStaticRow(sds, lts);
                         case INSERT:
                         case UPDATE:
-                            if (!query.match(cd))
+                            if (rangeTombstones.isShadowed(cd, lts))
                             {
                                 if (debugCd != -1 && cd == debugCd)
-                                    logger.info("Hiding {} at {}/{} because there was no query match", debugCd, lts, opId);
-                                continue outer;
-                            }
-
-                            for (Ranges.Range range : rangeDeletes)
-                            {
-                                if (range.timestamp >= lts && range.contains(cd))
-                                {
-                                    if (debugCd != -1 && cd == debugCd)
-                                        logger.info("Hiding {} at {}/{} because of range tombstone {}", debugCd, lts, opId, range);
-                                    continue outer;
-                                }
+                                    logger.info("Hiding {} at {}/{} because of range tombstones {}", debugCd, lts, opId, rangeTombstones.shadowedBy(cd, lts));
+                                continue;
                             }
 
+                            descriptorSelector.vds(pd, cd, lts, opId, op.opType, schema, vds);
                             partitionState.write(cd,
-                                                 descriptorSelector.vds(pd, cd, lts, opId, op.opType, schema),
+                                                 vds,
                                                  lts,
                                                  op.opType == OpSelectors.OperationKind.INSERT || op.opType == OpSelectors.OperationKind.INSERT_WITH_STATICS);
                             break;
@@ -207,7 +269,7 @@ public class Reconciler
                     }
                 }
 
-                outer: for (ReplayingVisitor.Operation op : columnDeletes)
+                for (ReplayingVisitor.Operation op : columnDeletes)
                 {
                     long opId = op.opId;
                     long cd = op.cd;
@@ -217,31 +279,21 @@ public class Reconciler
                         case DELETE_COLUMN_WITH_STATICS:
                             partitionState.deleteStaticColumns(lts,
                                                                schema.staticColumnsOffset,
-                                                               descriptorSelector.columnMask(pd, lts, opId, op.opType),
-                                                               schema.staticColumnsMask());
+                                                               descriptorSelector.columnMaskBits(pd, lts, opId, op.opType),
+                                                               schema.staticColumnsMask().toLong());
                         case DELETE_COLUMN:
-                            if (!query.match(cd))
+                            if (rangeTombstones.isShadowed(cd, lts))
                             {
                                 if (debugCd != -1 && cd == debugCd)
-                                    logger.info("Hiding {} at {}/{} because there was no query match", debugCd, lts, opId);
-                                continue outer;
-                            }
-
-                            for (Ranges.Range range : rangeDeletes)
-                            {
-                                if (range.timestamp >= lts && range.contains(cd))
-                                {
-                                    if (debugCd != -1 && cd == debugCd)
-                                        logger.info("Hiding {} at {}/{} because of range tombstone {}", debugCd, lts, opId, range);
-                                    continue outer;
-                                }
+                                    logger.info("Hiding {} at {}/{} because of range tombstones {}", debugCd, lts, opId, rangeTombstones.shadowedBy(cd, lts));
+                                continue;
                             }
 
                             partitionState.deleteRegularColumns(lts,
                                                                 cd,
                                                                 schema.regularColumnsOffset,
-                                                                descriptorSelector.columnMask(pd, lts, opId, op.opType),
-                                                                schema.regularColumnsMask());
+                                                                descriptorSelector.columnMaskBits(pd, lts, opId, op.opType),
+                                                                schema.regularColumnsMask().toLong());
                             break;
                     }
                 }
@@ -259,25 +311,85 @@ public class Reconciler
 
         LtsVisitor visitor = visitorFactory.apply(new Processor());
 
-        long currentLts = pdSelector.minLtsFor(pd);
-
         while (currentLts <= maxLts && currentLts >= 0)
         {
             visitor.visit(currentLts);
             currentLts = pdSelector.nextLts(currentLts);
         }
 
-        return partitionState;
+        if (partitionCacheSize <= 0)
+        {
+            partitionState.retainMatching(query);
+            return partitionState;
+        }
+
+        // Cached state is query-independent, so we hand out a filtered copy, and put the original back
+        PartitionState filtered = partitionState.filter(query);
+        putCached(pd, new CachedPartitionState(partitionState, maxLts, currentLts));
+        return filtered;
     }
 
-    public class PartitionState implements Iterable<RowState>
+    /**
+     * Removes and returns a cached state for the given partition if it can be extended up to {@code maxLts}.
+     * Removal guarantees that the state is not mutated concurrently while it's being extended.
+     */
+    private CachedPartitionState takeCached(long pd, long maxLts)
     {
-        private final NavigableMap<Long, RowState> rows;
-        private RowState staticRow;
+        if (partitionCacheSize <= 0)
+            return null;
 
-        private PartitionState()
+        synchronized (partitionCache)
         {
-            rows = new TreeMap<>();
+            CachedPartitionState cached = partitionCache.get(pd);
+            // State can not be rolled back, so we have to inflate from scratch if it is newer than requested
+            if (cached == null || cached.maxLts > maxLts)
+                return null;
+
+            partitionCache.remove(pd);
+            return cached;
+        }
+    }
+
+    private void putCached(long pd, CachedPartitionState state)
+    {
+        synchronized (partitionCache)
+        {
+            CachedPartitionState current = partitionCache.get(pd);
+            if (current == null || current.maxLts <= state.maxLts)
+                partitionCache.put(pd, state);
+        }
+    }
+
+    private static class CachedPartitionState
+    {
+        private final PartitionState state;
+        // LTS the state was inflated up to (inclusive)
+        private final long maxLts;
+        // Next LTS that visits this partition and is not yet applied to the state, or -1 if there's none
+        private final long nextLts;
+
+        private CachedPartitionState(PartitionState state, long maxLts, long nextLts)
+        {
+            this.state = state;
+            this.maxLts = maxLts;
+            this.nextLts = nextLts;
+        }
+    }
+
+    /**
+     * Model state of a single partition. Implementations differ in how they store rows, but have to
+     * reconcile writes and deletions in the same way.
+     */
+    public static abstract class PartitionState implements Iterable<RowState>
+    {
+        protected final SchemaSpec schema;
+        protected final long debugCd;
+        protected RowState staticRow;
+
+        protected PartitionState(SchemaSpec schema, long debugCd)
+        {
+            this.schema = schema;
+            this.debugCd = debugCd;
             if (!schema.staticColumns.isEmpty())
             {
                 staticRow = new RowState(STATIC_CLUSTERING,
@@ -286,23 +398,113 @@ public class Reconciler
             }
         }
 
-        private void writeStaticRow(long[] staticVds,
-                                    long lts)
+        protected abstract void write(long cd,
+                                      long[] vds,
+                                      long lts,
+                                      boolean writePrimaryKeyLiveness);
+
+        protected abstract void delete(Ranges.Range range,
+                                       long lts);
+
+        protected abstract void delete(long cd,
+                                       long lts);
+
+        protected abstract void deleteRegularColumns(long lts, long cd, int columnOffset, long columns, long mask);
+
+        protected abstract void deleteRows();
+
+        /**
+         * Returns a deep copy of this state that contains only rows matching the given query.
+         */
+        protected abstract PartitionState filter(Query query);
+
+        protected abstract void retainMatching(Query query);
+
+        public abstract boolean isEmpty();
+
+        public abstract Iterator<RowState> iterator(boolean reverse);
+
+        public abstract Collection<RowState> rows(boolean reverse);
+
+        protected void writeStaticRow(long[] staticVds,
+                                      long lts)
         {
             if (staticRow != null)
                 staticRow = updateRowState(staticRow, schema.staticColumns, STATIC_CLUSTERING, staticVds, lts, false);
         }
 
-        private void write(long cd,
-                           long[] vds,
-                           long lts,
-                           boolean writePrimaryKeyLiveness)
+        protected void deleteStaticColumns(long lts, int columnOffset, long columns, long mask)
+        {
+            if (staticRow == null)
+                return;
+
+            for (int i = 0; i < staticRow.vds.length; i++)
+            {
+                if (BitSet.isSet(columns & mask, columnOffset + i))
+                {
+                    staticRow.vds[i] = NIL_DESCR;
+                    staticRow.lts[i] = NO_TIMESTAMP;
+                }
+            }
+        }
+
+        protected void deletePartition(long lts)
+        {
+            if (debugCd != -1)
+                logger.info("Hiding {} at {} because partition deletion", debugCd, lts);
+
+            deleteRows();
+            if (!schema.staticColumns.isEmpty())
+            {
+                Arrays.fill(staticRow.vds, NIL_DESCR);
+                Arrays.fill(staticRow.lts, NO_TIMESTAMP);
+            }
+        }
+
+        public Iterator<RowState> iterator()
+        {
+            return iterator(false);
+        }
+
+        public RowState staticRow()
+        {
+            return staticRow;
+        }
+
+        public String toString(SchemaSpec schema)
+        {
+            StringBuilder sb = new StringBuilder();
+
+            if (staticRow != null)
+                sb.append("Static row: " + staticRow.toString(schema)).append("\n");
+
+            for (RowState row : rows(false))
+                sb.append(row.toString(schema)).append("\n");
+
+            return sb.toString();
+        }
+    }
+
+    public static class TreeMapPartitionState extends PartitionState
+    {
+        private final NavigableMap<Long, RowState> rows;
+
+        public TreeMapPartitionState(SchemaSpec schema, long debugCd)
+        {
+            super(schema, debugCd);
+            rows = new TreeMap<>();
+        }
+
+        protected void write(long cd,
+                             long[] vds,
+                             long lts,
+                             boolean writePrimaryKeyLiveness)
         {
             rows.compute(cd, (cd_, current) -> updateRowState(current, schema.regularColumns, cd, vds, lts, writePrimaryKeyLiveness));
         }
 
-        private void delete(Ranges.Range range,
-                            long lts)
+        protected void delete(Ranges.Range range,
+                              long lts)
         {
             if (range.minBound > range.maxBound)
                 return;
@@ -322,8 +524,8 @@ public class Reconciler
             }
         }
 
-        private void delete(long cd,
-                            long lts)
+        protected void delete(long cd,
+                              long lts)
         {
             RowState state = rows.remove(cd);
             if (state != null)
@@ -332,77 +534,46 @@ public class Reconciler
                     assert lts >= v : String.format("Attempted to remove a row with a tombstone that has older timestamp (%d): %s", lts, state);
             }
         }
-        public boolean isEmpty()
-        {
-            return rows.isEmpty();
-        }
 
-        private RowState updateRowState(RowState currentState, List<ColumnSpec<?>> columns, long cd, long[] vds, long lts, boolean writePrimaryKeyLiveness)
+        protected PartitionState filter(Query query)
         {
-            if (currentState == null)
-            {
-                long[] ltss = new long[vds.length];
-                long[] vdsCopy = new long[vds.length];
-                for (int i = 0; i < vds.length; i++)
-                {
-                    if (vds[i] != UNSET_DESCR)
-                    {
-                        ltss[i] = lts;
-                        vdsCopy[i] = vds[i];
-                    }
-                    else
-                    {
-                        ltss[i] = NO_TIMESTAMP;
-                        vdsCopy[i] = NIL_DESCR;
-                    }
-                }
+            TreeMapPartitionState filtered = new TreeMapPartitionState(schema, debugCd);
+            if (staticRow != null)
+                filtered.staticRow = staticRow.copy();
 
-                currentState = new RowState(cd, vdsCopy, ltss);
-            }
-            else
+            for (RowState row : rows.values())
             {
-                assert currentState.vds.length == vds.length;
-                for (int i = 0; i < vds.length; i++)
-                {
-                    if (vds[i] == UNSET_DESCR)
-                        continue;
-
-                    assert lts >= currentState.lts[i] : String.format("Out-of-order LTS: %d. Max seen: %s", lts, currentState.lts[i]); // sanity check; we're iterating in lts order
-
-                    if (currentState.lts[i] == lts)
-                    {
-                        // Timestamp collision case
-                        ColumnSpec<?> column = columns.get(i);
-                        if (column.type.compareLexicographically(vds[i], currentState.vds[i]) > 0)
-                            currentState.vds[i] = vds[i];
-                    }
-                    else
-                    {
-                        currentState.vds[i] = vds[i];
-                        assert lts > currentState.lts[i];
-                        currentState.lts[i] = lts;
-                    }
-                }
+                if (query.match(row.cd))
+                    filtered.rows.put(row.cd, row.copy());
+                else if (debugCd != -1 && row.cd == debugCd)
+                    logger.info("Hiding {} because there was no query match", debugCd);
             }
-
-            if (writePrimaryKeyLiveness)
-                currentState.hasPrimaryKeyLivenessInfo = true;
-
-            return currentState;
+            return filtered;
         }
 
-        private void deleteRegularColumns(long lts, long cd, int columnOffset, BitSet columns, BitSet mask)
+        protected void retainMatching(Query query)
         {
-            deleteColumns(lts, rows.get(cd), columnOffset, columns, mask);
+            Iterator<RowState> iter = rows.values().iterator();
+            while (iter.hasNext())
+            {
+                RowState row = iter.next();
+                if (!query.match(row.cd))
+                {
+                    if (debugCd != -1 && row.cd == debugCd)
+                        logger.info("Hiding {} because there was no query match", debugCd);
+                    iter.remove();
+                }
+            }
         }
 
-        private void deleteStaticColumns(long lts, int columnOffset, BitSet columns, BitSet mask)
+        public boolean isEmpty()
         {
-            deleteColumns(lts, staticRow, columnOffset, columns, mask);
+            return rows.isEmpty();
         }
 
-        private void deleteColumns(long lts, RowState state, int columnOffset, BitSet columns, BitSet mask)
+        protected void deleteRegularColumns(long lts, long cd, int columnOffset, long columns, long mask)
         {
+            RowState state = rows.get(cd);
             if (state == null)
                 return;
 
@@ -411,7 +582,7 @@ public class Reconciler
             boolean allNil = true;
             for (int i = 0; i < state.vds.length; i++)
             {
-                if (columns.isSet(columnOffset + i, mask))
+                if (BitSet.isSet(columns & mask, columnOffset + i))
                 {
                     state.vds[i] = NIL_DESCR;
                     state.lts[i] = NO_TIMESTAMP;
@@ -422,26 +593,13 @@ public class Reconciler
                 }
             }
 
-            if (state.cd != STATIC_CLUSTERING && allNil & !state.hasPrimaryKeyLivenessInfo)
+            if (allNil & !state.hasPrimaryKeyLivenessInfo)
                 delete(state.cd, lts);
         }
 
-        private void deletePartition(long lts)
+        protected void deleteRows()
         {
-            if (debugCd != -1)
-                logger.info("Hiding {} at {} because partition deletion", debugCd, lts);
-
             rows.clear();
-            if (!schema.staticColumns.isEmpty())
-            {
-                Arrays.fill(staticRow.vds, NIL_DESCR);
-                Arrays.fill(staticRow.lts, NO_TIMESTAMP);
-            }
-        }
-
-        public Iterator<RowState> iterator()
-        {
-            return iterator(false);
         }
 
         public Iterator<RowState> iterator(boolean reverse)
@@ -459,24 +617,60 @@ public class Reconciler
 
             return rows.values();
         }
+    }
 
-        public RowState staticRow()
+    private static RowState updateRowState(RowState currentState, List<ColumnSpec<?>> columns, long cd, long[] vds, long lts, boolean writePrimaryKeyLiveness)
+    {
+        if (currentState == null)
         {
-            return staticRow;
-        }
+            long[] ltss = new long[vds.length];
+            long[] vdsCopy = new long[vds.length];
+            for (int i = 0; i < vds.length; i++)
+            {
+                if (vds[i] != UNSET_DESCR)
+                {
+                    ltss[i] = lts;
+                    vdsCopy[i] = vds[i];
+                }
+                else
+                {
+                    ltss[i] = NO_TIMESTAMP;
+                    vdsCopy[i] = NIL_DESCR;
+                }
+            }
 
-        public String toString(SchemaSpec schema)
+            currentState = new RowState(cd, vdsCopy, ltss);
+        }
+        else
         {
-            StringBuilder sb = new StringBuilder();
-
-            if (staticRow != null)
-                sb.append("Static row: " + staticRow.toString(schema)).append("\n");
+            assert currentState.vds.length == vds.length;
+            for (int i = 0; i < vds.length; i++)
+            {
+                if (vds[i] == UNSET_DESCR)
+                    continue;
 
-            for (RowState row : rows.values())
-                sb.append(row.toString(schema)).append("\n");
+                assert lts >= currentState.lts[i] : String.format("Out-of-order LTS: %d. Max seen: %s", lts, currentState.lts[i]); // sanity check; we're iterating in lts order
 
-            return sb.toString();
+                if (currentState.lts[i] == lts)
+                {
+                    // Timestamp collision case
+                    ColumnSpec<?> column = columns.get(i);
+                    if (column.type.compareLexicographically(vds[i], currentState.vds[i]) > 0)
+                        currentState.vds[i] = vds[i];
+                }
+                else
+                {
+                    currentState.vds[i] = vds[i];
+                    assert lts > currentState.lts[i];
+                    currentState.lts[i] = lts;
+                }
+            }
         }
+
+        if (writePrimaryKeyLiveness)
+            currentState.hasPrimaryKeyLivenessInfo = true;
+
+        return currentState;
     }
 
     public static long[] arr(int length, long fill)
@@ -502,6 +696,13 @@ public class Reconciler
             this.lts = lts;
         }
 
+        public RowState copy()
+        {
+            RowState copy = new RowState(cd, Arrays.copyOf(vds, vds.length), Arrays.copyOf(lts, lts.length));
+            copy.hasPrimaryKeyLivenessInfo = hasPrimaryKeyLivenessInfo;
+            return copy;
+        }
+
         public String toString()
         {
             return "RowState{" +
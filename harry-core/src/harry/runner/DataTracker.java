@@ -59,6 +59,14 @@ public abstract class DataTracker
     public abstract long maxStarted();
     public abstract long maxConsecutiveFinished();
 
+    /**
+     * Number of finished LTS that are waiting for the earlier ones to finish before they can be counted as consecutive.
+     */
+    public long reorderBufferSize()
+    {
+        return 0;
+    }
+
     public abstract Configuration.DataTrackerConfiguration toConfig();
 
     public static interface DataTrackerFactory
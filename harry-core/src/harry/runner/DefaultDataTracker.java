@@ -118,6 +118,11 @@ public class DefaultDataTracker extends DataTracker
         return maxCompleteLts.get();
     }
 
+    public long reorderBufferSize()
+    {
+        return reorderBuffer.size();
+    }
+
     public Configuration.DataTrackerConfiguration toConfig()
     {
         return new Configuration.DefaultDataTrackerConfiguration(maxSeenLts.get(), maxCompleteLts.get());
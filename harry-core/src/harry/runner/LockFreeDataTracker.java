@@ -0,0 +1,233 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.runner;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import harry.core.Configuration;
+import harry.core.VisibleForTesting;
+
+/**
+ * Data tracker that records finished LTS in a ring of atomic words, one bit per LTS, instead of a reorder queue.
+ *
+ * Bit for LTS {@code lts} is {@code lts & (windowSize - 1)}. Threads finishing an LTS only set their bit, and
+ * whoever manages to grab the {@code advancing} flag collapses consecutive set bits on the left side into
+ * {@code maxCompleteLts}, clearing them on the way. Since only the flag holder clears bits and advances
+ * {@code maxCompleteLts}, they never race with each other. Threads that fail to grab the flag just leave:
+ * the holder re-checks the next bit after releasing the flag, so their completions are never lost.
+ *
+ * Every LTS is set and cleared exactly once, so {@link #maxConsecutiveFinished()} is O(1) amortised.
+ * LTS that are more than {@code windowSize} ahead of the last consecutive finished one do not fit into the ring,
+ * so they are parked in a sorted overflow set instead, and the flag holder moves them into the ring once the window
+ * catches up. Finishing never blocks, even if some earlier LTS never finishes.
+ */
+public class LockFreeDataTracker extends DataTracker
+{
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    private final AtomicLong maxSeenLts;
+    private final AtomicLong maxCompleteLts;
+
+    private final int windowSize;
+    private final int mask;
+    private final AtomicLongArray finished;
+    private final AtomicInteger advancing;
+    private final ConcurrentSkipListSet<Long> overflow;
+
+    public LockFreeDataTracker()
+    {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public LockFreeDataTracker(int windowSize)
+    {
+        if (windowSize < Long.SIZE || Integer.bitCount(windowSize) != 1)
+            throw new IllegalArgumentException(String.format("Window size should be a power of two, not smaller than %d, but was %d",
+                                                             Long.SIZE, windowSize));
+        this.maxSeenLts = new AtomicLong(-1);
+        this.maxCompleteLts = new AtomicLong(-1);
+        this.windowSize = windowSize;
+        this.mask = windowSize - 1;
+        this.finished = new AtomicLongArray(windowSize / Long.SIZE);
+        this.advancing = new AtomicInteger(0);
+        this.overflow = new ConcurrentSkipListSet<>();
+    }
+
+    protected void startedInternal(long lts)
+    {
+        long current = maxSeenLts.get();
+        // Avoid contending on the shared counter unless it has to move
+        while (current < lts && !maxSeenLts.compareAndSet(current, lts))
+            current = maxSeenLts.get();
+    }
+
+    protected void finishedInternal(long lts)
+    {
+        startedInternal(lts);
+
+        if (lts <= maxCompleteLts.get())
+            return;
+
+        // This lts would overlap with unfinished ones; leave it for the flag holder to pick up once the window moves
+        if (lts - maxCompleteLts.get() > windowSize)
+            overflow.add(lts);
+        else
+            markFinished(lts);
+
+        advance();
+    }
+
+    private void markFinished(long lts)
+    {
+        int bit = (int) (lts & mask);
+        long bitMask = 1L << bit;
+        int word = bit >>> 6;
+        long prev = finished.get(word);
+        while (!finished.compareAndSet(word, prev, prev | bitMask))
+            prev = finished.get(word);
+
+        assert (prev & bitMask) == 0 : String.format("LTS %d was already marked as finished", lts);
+    }
+
+    private void advance()
+    {
+        while (advancing.compareAndSet(0, 1))
+        {
+            try
+            {
+                while (advanceOnce() || drainOverflow())
+                {
+                }
+            }
+            finally
+            {
+                advancing.set(0);
+            }
+
+            // Some thread may have set the next bit, or parked an lts that now fits into the window,
+            // and failed to get the flag after we've checked it
+            if (!isFinished(maxCompleteLts.get() + 1) && !overflowFits())
+                return;
+        }
+    }
+
+    /**
+     * Collapses consecutive finished LTS that share a word with the next expected one.
+     * Should only be called by the holder of the {@code advancing} flag.
+     */
+    private boolean advanceOnce()
+    {
+        long complete = maxCompleteLts.get();
+        int bit = (int) ((complete + 1) & mask);
+        int word = bit >>> 6;
+        int offset = bit & 63;
+
+        long bits = finished.get(word) >>> offset;
+        int run = Long.numberOfTrailingZeros(~bits);
+        if (run == 0)
+            return false;
+
+        run = Math.min(run, Long.SIZE - offset);
+        long runMask = (run == Long.SIZE ? -1L : ((1L << run) - 1)) << offset;
+
+        long prev = finished.get(word);
+        while (!finished.compareAndSet(word, prev, prev & ~runMask))
+            prev = finished.get(word);
+
+        maxCompleteLts.set(complete + run);
+        return true;
+    }
+
+    /**
+     * Moves overflowing LTS that fit into the window into the ring.
+     * Should only be called by the holder of the {@code advancing} flag.
+     */
+    private boolean drainOverflow()
+    {
+        boolean drained = false;
+        // Only the flag holder removes from the overflow, so it can not become empty between the checks
+        while (overflowFits())
+        {
+            long lts = overflow.pollFirst();
+            markFinished(lts);
+            drained = true;
+        }
+        return drained;
+    }
+
+    private boolean overflowFits()
+    {
+        return !overflow.isEmpty() && overflow.first() - maxCompleteLts.get() <= windowSize;
+    }
+
+    private boolean isFinished(long lts)
+    {
+        int bit = (int) (lts & mask);
+        return (finished.get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    public long maxStarted()
+    {
+        return maxSeenLts.get();
+    }
+
+    public long maxConsecutiveFinished()
+    {
+        return maxCompleteLts.get();
+    }
+
+    /**
+     * Counts bits that are set but not yet collapsed, and overflowing LTS, so the result is only approximate
+     * under concurrent updates.
+     */
+    public long reorderBufferSize()
+    {
+        long size = overflow.size();
+        for (int i = 0; i < finished.length(); i++)
+            size += Long.bitCount(finished.get(i));
+        return size;
+    }
+
+    public Configuration.DataTrackerConfiguration toConfig()
+    {
+        return new Configuration.LockFreeDataTrackerConfiguration(maxSeenLts.get(), maxCompleteLts.get(), windowSize);
+    }
+
+    @VisibleForTesting
+    public void forceLts(long maxSeen, long maxComplete)
+    {
+        for (int i = 0; i < finished.length(); i++)
+            finished.set(i, 0);
+        overflow.clear();
+        this.maxSeenLts.set(maxSeen);
+        this.maxCompleteLts.set(maxComplete);
+    }
+
+    public String toString()
+    {
+        return "LockFreeDataTracker{" +
+               "maxSeenLts=" + maxSeenLts +
+               ", maxCompleteLts=" + maxCompleteLts +
+               ", windowSize=" + windowSize +
+               '}';
+    }
+}
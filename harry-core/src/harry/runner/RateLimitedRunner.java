@@ -0,0 +1,348 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import harry.core.Configuration;
+import harry.core.Run;
+import harry.core.VisibleForTesting;
+import harry.visitors.Visitor;
+
+/**
+ * Open-loop runner: instead of running visitors back to back, it schedules visits at a configured rate, optionally
+ * ramping it up linearly from zero and then changing it in steps.
+ *
+ * Every visit gets an intended start time from the shared {@link Pacer}, and workers wait until that time before
+ * running it. If the SUT stalls, workers fall behind, and later visits start immediately, but their latency is still
+ * measured from the intended start time. This way, stalls show up in latency as they would for clients issuing
+ * requests at a fixed rate, instead of being hidden by coordinated omission.
+ *
+ * Concurrency only limits the number of visits that can be in flight at once, and should be large enough to sustain
+ * the rate given the expected visit latency.
+ */
+public class RateLimitedRunner extends Runner.TimedRunner
+{
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitedRunner.class);
+
+    public static final String TYPE = "rate_limited";
+
+    // Upper bound for a single park, so that workers waiting for a distant visit notice termination
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<List<Visitor>> perThreadVisitors;
+    private final int concurrency;
+    private final RateProfile profile;
+
+    public RateLimitedRunner(Run run,
+                             Configuration config,
+                             int concurrency,
+                             List<? extends Visitor.VisitorFactory> visitorFactories,
+                             RateProfile profile,
+                             long runtime, TimeUnit runtimeUnit)
+    {
+        super(run, config, concurrency, runtime, runtimeUnit);
+
+        this.concurrency = concurrency;
+        this.profile = profile;
+        this.perThreadVisitors = new ArrayList<>(concurrency);
+
+        for (int i = 0; i < concurrency; i++)
+        {
+            List<Visitor> visitors = new ArrayList<>();
+
+            for (Visitor.VisitorFactory factory : visitorFactories)
+                visitors.add(factory.make(run));
+
+            perThreadVisitors.add(visitors);
+        }
+    }
+
+    @Override
+    public String type()
+    {
+        return TYPE;
+    }
+
+    @Override
+    protected CompletableFuture<?> start(boolean reportErrors, BooleanSupplier parentExit)
+    {
+        CompletableFuture<?> future = new CompletableFuture<>();
+
+        if (reportErrors)
+            future.whenComplete((a, b) -> maybeReportErrors());
+
+        AtomicBoolean terminated = new AtomicBoolean(false);
+        scheduleTermination(terminated);
+        BooleanSupplier exit = () -> Thread.currentThread().isInterrupted() || future.isDone()
+                                     || terminated.get() || parentExit.getAsBoolean();
+
+        Pacer pacer = new Pacer(profile, System.nanoTime());
+        AtomicInteger liveCount = new AtomicInteger(0);
+
+        for (int i = 0; i < concurrency; i++)
+        {
+            List<Visitor> visitors = perThreadVisitors.get(i);
+            executor.submit(reportThrowable(() -> run(visitors, pacer, future, exit, liveCount), future));
+        }
+
+        return future;
+    }
+
+    private void run(List<Visitor> visitors,
+                     Pacer pacer,
+                     CompletableFuture<?> future,
+                     BooleanSupplier exit,
+                     AtomicInteger liveCount)
+    {
+        liveCount.incrementAndGet();
+
+        while (!exit.getAsBoolean())
+        {
+            for (Visitor visitor : visitors)
+            {
+                long intendedStart = pacer.next();
+                if (!awaitStart(intendedStart, exit))
+                    break;
+
+                visitor.visit();
+                run.metricReporter.visit(System.nanoTime() - intendedStart);
+            }
+        }
+
+        drain(visitors, future);
+
+        if (liveCount.decrementAndGet() == 0)
+            future.complete(null);
+    }
+
+    /**
+     * Parks until the intended start time. Returns {@code false} if the runner was asked to exit in the meantime.
+     */
+    private static boolean awaitStart(long intendedStart, BooleanSupplier exit)
+    {
+        while (true)
+        {
+            if (exit.getAsBoolean())
+                return false;
+
+            long remaining = intendedStart - System.nanoTime();
+            if (remaining <= 0)
+                return true;
+
+            LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NANOS));
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException
+    {
+        logger.info("Shutting down...");
+        shutDownVisitors();
+
+        // we need to wait for all threads that use schema to stop before we can tear down and drop the table
+        shutDownExecutors();
+
+        teardown();
+    }
+
+    @Override
+    protected void shutDownVisitors()
+    {
+        shutDownVisitors(perThreadVisitors.stream().flatMap(Collection::stream).collect(Collectors.toList()));
+    }
+
+    /**
+     * Hands out intended start times of consecutive visits, spacing them according to the rate at the time
+     * the previous visit was scheduled for. Schedule does not depend on when the visits actually run.
+     */
+    @VisibleForTesting
+    static class Pacer
+    {
+        private final RateProfile profile;
+        private final long startNanos;
+        private final AtomicLong next;
+
+        Pacer(RateProfile profile, long startNanos)
+        {
+            this.profile = profile;
+            this.startNanos = startNanos;
+            this.next = new AtomicLong(startNanos);
+        }
+
+        long next()
+        {
+            while (true)
+            {
+                long current = next.get();
+                double rate = profile.rate(current - startNanos);
+                long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+                if (next.compareAndSet(current, current + Math.max(1, interval)))
+                    return current;
+            }
+        }
+    }
+
+    /**
+     * Visit rate as a function of time since the start of the run: linear ramp-up from zero to {@code rate}, after which
+     * the rate stays constant, or changes according to the given steps. After the last step, its rate is kept until
+     * the end of the run.
+     */
+    public static class RateProfile
+    {
+        // Rate used at the very beginning of ramp-up, when it would otherwise be zero
+        private static final double MIN_RATE = 1;
+
+        private final double rate;
+        private final long rampUpNanos;
+        private final List<Step> steps;
+
+        public RateProfile(double rate, long rampUpNanos, List<Step> steps)
+        {
+            if (rate <= 0)
+                throw new IllegalArgumentException("Rate should be positive, but was " + rate);
+            for (Step step : steps)
+            {
+                if (step.rate <= 0 || step.durationNanos <= 0)
+                    throw new IllegalArgumentException("Step rate and duration should be positive, but was " + step);
+            }
+
+            this.rate = rate;
+            this.rampUpNanos = rampUpNanos;
+            this.steps = steps;
+        }
+
+        public static RateProfile constant(double rate)
+        {
+            return new RateProfile(rate, 0, Collections.emptyList());
+        }
+
+        public double rate(long elapsedNanos)
+        {
+            if (elapsedNanos < rampUpNanos)
+                return Math.max(MIN_RATE, rate * elapsedNanos / rampUpNanos);
+
+            if (steps.isEmpty())
+                return rate;
+
+            long stepStart = rampUpNanos;
+            for (Step step : steps)
+            {
+                if (elapsedNanos < stepStart + step.durationNanos)
+                    return step.rate;
+                stepStart += step.durationNanos;
+            }
+
+            return steps.get(steps.size() - 1).rate;
+        }
+
+        public static class Step
+        {
+            public final double rate;
+            public final long durationNanos;
+
+            public Step(double rate, long durationNanos)
+            {
+                this.rate = rate;
+                this.durationNanos = durationNanos;
+            }
+
+            public String toString()
+            {
+                return "Step{rate=" + rate + ", durationNanos=" + durationNanos + '}';
+            }
+        }
+    }
+
+    @JsonTypeName(TYPE)
+    public static class RateLimitedRunnerConfig implements Configuration.RunnerConfiguration
+    {
+        public final int concurrency;
+
+        @JsonProperty(value = "visitors")
+        public final List<Configuration.VisitorConfiguration> visitorFactories;
+
+        public final double rate;
+        public final long ramp_up_seconds;
+        public final List<StepConfig> steps;
+
+        public final long run_time;
+        public final TimeUnit run_time_unit;
+
+        @JsonCreator
+        public RateLimitedRunnerConfig(@JsonProperty(value = "concurrency", defaultValue = "4") int concurrency,
+                                       @JsonProperty(value = "visitors") List<Configuration.VisitorConfiguration> visitors,
+                                       @JsonProperty(value = "rate") double rate,
+                                       @JsonProperty(value = "ramp_up_seconds", defaultValue = "0") long rampUpSeconds,
+                                       @JsonProperty(value = "steps") List<StepConfig> steps,
+                                       @JsonProperty(value = "run_time", defaultValue = "2") long runtime,
+                                       @JsonProperty(value = "run_time_unit", defaultValue = "HOURS") TimeUnit runtimeUnit)
+        {
+            this.concurrency = concurrency;
+            this.visitorFactories = visitors;
+            this.rate = rate;
+            this.ramp_up_seconds = rampUpSeconds;
+            this.steps = steps == null ? Collections.emptyList() : steps;
+            this.run_time = runtime;
+            this.run_time_unit = runtimeUnit;
+        }
+
+        @Override
+        public Runner make(Run run, Configuration config)
+        {
+            List<RateProfile.Step> profileSteps = new ArrayList<>(steps.size());
+            for (StepConfig step : steps)
+                profileSteps.add(new RateProfile.Step(step.rate, TimeUnit.SECONDS.toNanos(step.duration_seconds)));
+
+            RateProfile profile = new RateProfile(rate, TimeUnit.SECONDS.toNanos(ramp_up_seconds), profileSteps);
+            return new RateLimitedRunner(run, config, concurrency, visitorFactories, profile, run_time, run_time_unit);
+        }
+    }
+
+    public static class StepConfig
+    {
+        public final double rate;
+        public final long duration_seconds;
+
+        @JsonCreator
+        public StepConfig(@JsonProperty(value = "rate") double rate,
+                          @JsonProperty(value = "duration_seconds") long durationSeconds)
+        {
+            this.rate = rate;
+            this.duration_seconds = durationSeconds;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -42,6 +43,7 @@ import org.slf4j.LoggerFactory;
 
 import harry.core.Configuration;
 import harry.core.Run;
+import harry.util.VirtualThreads;
 import harry.visitors.Visitor;
 
 public abstract class Runner
@@ -50,18 +52,23 @@ public abstract class Runner
 
     protected final Run run;
     protected final Configuration config;
-    protected final ScheduledExecutorService executor;
+    protected final ExecutorService executor;
 
     // If there's an error, there's a good chance we're going to hit it more than once
     // since we have multiple concurrent checkers running
     protected final CopyOnWriteArrayList<Throwable> errors;
 
     public Runner(Run run, Configuration config, int concurrency)
+    {
+        this(run, config, Executors.newScheduledThreadPool(concurrency));
+    }
+
+    protected Runner(Run run, Configuration config, ExecutorService executor)
     {
         this.run = run;
         this.config = config;
         this.errors = new CopyOnWriteArrayList<>();
-        this.executor = Executors.newScheduledThreadPool(concurrency);
+        this.executor = executor;
     }
 
     public Run getRun()
@@ -96,6 +103,9 @@ public abstract class Runner
     public void teardown()
     {
         logger.info("Tearing down setup...");
+        run.metricReporter.shutdown();
+        logger.info("Key caches: partition {}, clustering {}",
+                    run.schemaSpec.partitionKeyCache(), run.schemaSpec.clusteringKeyCache());
         if (config.drop_schema)
         {
             if (!errors.isEmpty())
@@ -177,7 +187,12 @@ public abstract class Runner
 
         public TimedRunner(Run run, Configuration config, int concurrency, long runtime, TimeUnit runtimeUnit)
         {
-            super(run, config, concurrency);
+            this(run, config, Executors.newScheduledThreadPool(concurrency), runtime, runtimeUnit);
+        }
+
+        protected TimedRunner(Run run, Configuration config, ExecutorService executor, long runtime, TimeUnit runtimeUnit)
+        {
+            super(run, config, executor);
 
             this.shutdownExecutor = Executors.newSingleThreadScheduledExecutor();
             this.runtime = runtime;
@@ -247,6 +262,7 @@ public abstract class Runner
                 value.visit();
             }
 
+            drain(visitors, future);
             future.complete(null);
         }
 
@@ -320,6 +336,7 @@ public abstract class Runner
                 }
             }
 
+            drain(visitors, future);
             future.complete(null);
         }
 
@@ -342,6 +359,11 @@ public abstract class Runner
         }
     }
 
+    /**
+     * Runs {@code concurrency} visitor loops in parallel. By default, each loop occupies a platform thread, which it
+     * blocks while waiting for the SUT. With {@code virtualThreads}, each loop runs on its own virtual thread instead,
+     * so that concurrency is not bound by the number of OS threads.
+     */
     // TODO: this requires some significant improvement
     public static class ConcurrentRunner extends TimedRunner
     {
@@ -354,7 +376,19 @@ public abstract class Runner
                                 List<? extends Visitor.VisitorFactory> visitorFactories,
                                 long runtime, TimeUnit runtimeUnit)
         {
-            super(run, config, concurrency, runtime, runtimeUnit);
+            this(run, config, concurrency, false, visitorFactories, runtime, runtimeUnit);
+        }
+
+        public ConcurrentRunner(Run run,
+                                Configuration config,
+                                int concurrency,
+                                boolean virtualThreads,
+                                List<? extends Visitor.VisitorFactory> visitorFactories,
+                                long runtime, TimeUnit runtimeUnit)
+        {
+            super(run, config,
+                  virtualThreads ? VirtualThreads.newVirtualThreadPerTaskExecutor() : Executors.newScheduledThreadPool(concurrency),
+                  runtime, runtimeUnit);
 
             this.concurrency = concurrency;
             this.perThreadVisitors = new ArrayList<>(concurrency);
@@ -417,7 +451,9 @@ public abstract class Runner
                     visitor.visit();
                 }
             }
-            
+
+            drain(visitors, future);
+
             // If we're the last worker still running, complete the future....
             if (liveCount.decrementAndGet() == 0)
                 future.complete(null);
@@ -442,6 +478,19 @@ public abstract class Runner
         }
     }
 
+    /**
+     * Lets visitors visit LTS they have drawn ahead of time and wait for the ones in flight, unless the run has
+     * already failed.
+     */
+    protected static void drain(List<Visitor> visitors, CompletableFuture<?> future)
+    {
+        if (future.isDone())
+            return;
+
+        for (Visitor visitor : visitors)
+            visitor.drain();
+    }
+
     protected static void shutDownVisitors(List<Visitor> visitors)
     {
         Throwable error = null;
@@ -452,15 +501,19 @@ public abstract class Runner
             {
                 visitor.shutdown();
             }
-            catch (InterruptedException e)
+            catch (Throwable t)
             {
                 if (error != null)
-                    error.addSuppressed(e);
+                    error.addSuppressed(t);
                 else
-                    error = e;
+                    error = t;
             }
         }
-        
+
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
         if (error != null)
             logger.warn("Failed to shut down all visitors!", error);
     }
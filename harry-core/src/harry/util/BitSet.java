@@ -21,6 +21,8 @@ package harry.util;
 import java.util.function.IntConsumer;
 
 import harry.generators.Generator;
+import harry.generators.PCGFastPure;
+import harry.generators.RngUtils;
 import harry.generators.Surjections;
 
 public interface BitSet
@@ -93,6 +95,11 @@ public interface BitSet
 
     public int size();
 
+    /**
+     * Bits of this set as a single long, bit {@code i} standing for index {@code i}.
+     */
+    public long toLong();
+
     public BitSet clone(boolean invert);
 
     public class BitSet64Bit implements BitSet
@@ -205,6 +212,11 @@ public interface BitSet
             return count;
         }
 
+        public long toLong()
+        {
+            return bits;
+        }
+
         public BitSet clone(boolean invert)
         {
             return new BitSet64Bit(invert ? ~bits & bitMask(count) : bits,
@@ -241,4 +253,14 @@ public interface BitSet
     {
         return generator(length).toSurjection(BITSET_STREAM_ID);
     }
+
+    /**
+     * Same bits as {@code surjection(length).inflate(descriptor)} would have, computed without allocating.
+     */
+    public static long inflateBits(long descriptor, int length)
+    {
+        long stream = (BITSET_STREAM_ID << 1) | 1;
+        long state = PCGFastPure.nextState(RngUtils.xorshift64star(descriptor) + stream, stream);
+        return PCGFastPure.shuffle(state) & bitMask(length);
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative values, similar to HdrHistogram: every power of two range is split into
+ * {@code 2^SUB_BUCKET_BITS} equal buckets, so reported values are within ~3% of the recorded ones.
+ *
+ * Recording is a single atomic increment, and never blocks. Counts are cumulative; readers take a {@link Snapshot}
+ * and subtract the previous one to get interval statistics.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value)
+    {
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+
+    public Snapshot snapshot()
+    {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = counts.get(i);
+        return new Snapshot(copy);
+    }
+
+    static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Highest value that falls into the given bucket.
+     */
+    static long highestEquivalentValue(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public static class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+
+        private Snapshot(long[] counts)
+        {
+            this.counts = counts;
+            long count = 0;
+            for (long c : counts)
+                count += c;
+            this.count = count;
+        }
+
+        public long count()
+        {
+            return count;
+        }
+
+        /**
+         * @param quantile a value between 0 and 1
+         * @return (an upper bound of) the value at the given quantile, or 0 if nothing was recorded
+         */
+        public long quantile(double quantile)
+        {
+            if (count == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                    return highestEquivalentValue(i);
+            }
+            return max();
+        }
+
+        public long max()
+        {
+            for (int i = counts.length - 1; i >= 0; i--)
+            {
+                if (counts[i] > 0)
+                    return highestEquivalentValue(i);
+            }
+            return 0;
+        }
+
+        public double mean()
+        {
+            if (count == 0)
+                return 0;
+
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++)
+                sum += (double) counts[i] * highestEquivalentValue(i);
+            return sum / count;
+        }
+
+        /**
+         * Values recorded since {@code previous} was taken.
+         */
+        public Snapshot since(Snapshot previous)
+        {
+            long[] diff = new long[counts.length];
+            for (int i = 0; i < counts.length; i++)
+                diff[i] = counts[i] - previous.counts[i];
+            return new Snapshot(diff);
+        }
+
+        public static Snapshot empty()
+        {
+            return new Snapshot(new long[BUCKETS]);
+        }
+    }
+}
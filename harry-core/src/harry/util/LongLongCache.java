@@ -0,0 +1,95 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Fixed-size direct-mapped cache of long values derived from long keys. Every key maps to a single slot by its low
+ * bits, and a newer key simply replaces the one that was there, so the memory footprint is bounded by the capacity,
+ * and dense key ranges such as positions do not collide until they wrap around.
+ *
+ * Slots are guarded by a version that is odd while the slot is being written, so readers never observe a key with
+ * another key's value. Only values that are a pure function of the key should be cached.
+ */
+public class LongLongCache
+{
+    private static final int VERSION = 0;
+    private static final int KEY = 1;
+    private static final int VALUE = 2;
+    private static final int SLOT_SIZE = 3;
+
+    // (version, key, value) per slot; version 0 means the slot is empty
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    public LongLongCache(int capacity)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity should be positive, but was " + capacity);
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.mask = size - 1;
+        this.slots = new AtomicLongArray(size * SLOT_SIZE);
+    }
+
+    public int capacity()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the cached value for the key, or computes, caches and returns it.
+     */
+    public long get(long key, LongUnaryOperator compute)
+    {
+        int slot = ((int) key & mask) * SLOT_SIZE;
+        long version = slots.get(slot + VERSION);
+        if (version != 0 && (version & 1) == 0 && slots.get(slot + KEY) == key)
+        {
+            long value = slots.get(slot + VALUE);
+            if (slots.get(slot + VERSION) == version)
+                return value;
+        }
+
+        long value = compute.applyAsLong(key);
+        put(slot, version, key, value);
+        return value;
+    }
+
+    public void put(long key, long value)
+    {
+        int slot = ((int) key & mask) * SLOT_SIZE;
+        put(slot, slots.get(slot + VERSION), key, value);
+    }
+
+    private void put(int slot, long version, long key, long value)
+    {
+        // Concurrent writers of the same slot give up instead of waiting, since the value can always be recomputed
+        if ((version & 1) != 0 || !slots.compareAndSet(slot + VERSION, version, version + 1))
+            return;
+
+        slots.set(slot + KEY, key);
+        slots.set(slot + VALUE, value);
+        slots.set(slot + VERSION, version + 2);
+    }
+}
@@ -19,58 +19,185 @@
 package harry.util;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
-// TODO: this is not really an interval tree, just two sorted arrays. However, given that ExhaustiveChecker has
-//       to inflate a partition every time we execute the query, we always know all boundaries at any given point in time.
+/**
+ * Static interval tree over a set of ranges.
+ *
+ * Ranges are sorted by their lower bound (inclusive bounds first), and form an implicit balanced search tree,
+ * where the root of every [lo, hi) subtree is its middle element. Every node is augmented with the highest
+ * upper bound and the highest timestamp in its subtree, which allows to skip subtrees that can not possibly
+ * contain the descriptor, or can not shadow the given timestamp. This makes {@link #isShadowed} logarithmic,
+ * and {@link #shadowedBy} logarithmic in the number of ranges plus the number of returned ranges.
+ *
+ * Since the tree is immutable, it fits best for the cases when all boundaries are known upfront, for example
+ * when reconciling a single LTS, or inflating a partition.
+ */
 public class Ranges
 {
-    private List<Range> sortedByMin;
+    private static final Comparator<Range> BY_MIN = (a, b) -> {
+        int cmp = Long.compare(a.minBound, b.minBound);
+        if (cmp != 0)
+            return cmp;
+        // Inclusive lower bound admits more descriptors, so it goes first
+        return Boolean.compare(b.minInclusive, a.minInclusive);
+    };
+
+    public static final Ranges EMPTY = new Ranges(new ArrayList<>());
+
+    private final Range[] sortedByMin;
+    // Subtree aggregates, indexed by the position of the subtree root
+    private final long[] maxBound;
+    private final boolean[] maxInclusive;
+    private final long[] maxTimestamp;
 
     public Ranges(List<Range> ranges)
     {
-        this.sortedByMin = new ArrayList<>(ranges);
-        Collections.sort(sortedByMin, Comparator.comparingLong(a -> a.minBound));
+        this.sortedByMin = ranges.toArray(new Range[0]);
+        Arrays.sort(sortedByMin, BY_MIN);
+        this.maxBound = new long[sortedByMin.length];
+        this.maxInclusive = new boolean[sortedByMin.length];
+        this.maxTimestamp = new long[sortedByMin.length];
+        if (sortedByMin.length > 0)
+            build(0, sortedByMin.length);
+    }
+
+    private int build(int lo, int hi)
+    {
+        int mid = (lo + hi) >>> 1;
+        Range range = sortedByMin[mid];
+        long max = range.maxBound;
+        boolean inclusive = range.maxInclusive;
+        long ts = range.timestamp;
+
+        if (lo < mid)
+        {
+            int left = build(lo, mid);
+            if (maxBound[left] > max)
+            {
+                max = maxBound[left];
+                inclusive = maxInclusive[left];
+            }
+            else if (maxBound[left] == max)
+            {
+                inclusive |= maxInclusive[left];
+            }
+            ts = Math.max(ts, maxTimestamp[left]);
+        }
+
+        if (mid + 1 < hi)
+        {
+            int right = build(mid + 1, hi);
+            if (maxBound[right] > max)
+            {
+                max = maxBound[right];
+                inclusive = maxInclusive[right];
+            }
+            else if (maxBound[right] == max)
+            {
+                inclusive |= maxInclusive[right];
+            }
+            ts = Math.max(ts, maxTimestamp[right]);
+        }
+
+        maxBound[mid] = max;
+        maxInclusive[mid] = inclusive;
+        maxTimestamp[mid] = ts;
+        return mid;
+    }
+
+    public boolean isEmpty()
+    {
+        return sortedByMin.length == 0;
+    }
+
+    public int size()
+    {
+        return sortedByMin.length;
     }
 
     public boolean isShadowed(long cd, long lts)
     {
-        return !shadowedBy(cd, lts).isEmpty();
+        return isShadowed(cd, lts, 0, sortedByMin.length);
     }
 
-    public List<Range> shadowedBy(long cd, long lts)
+    private boolean isShadowed(long cd, long lts, int lo, int hi)
     {
-        List<Range> shadowedBy = new ArrayList<>();
-        for (Range range : sortedByMin)
+        while (lo < hi)
         {
-            if (range.minBound > cd)
-                break;
+            int mid = (lo + hi) >>> 1;
+            if (!mayShadow(mid, cd, lts))
+                return false;
+
+            if (isShadowed(cd, lts, lo, mid))
+                return true;
+
+            Range range = sortedByMin[mid];
+            if (!admitsLowerBound(range, cd))
+                return false;
 
             if (range.contains(cd, lts))
-                shadowedBy.add(range);
+                return true;
+
+            lo = mid + 1;
         }
+        return false;
+    }
 
+    public List<Range> shadowedBy(long cd, long lts)
+    {
+        List<Range> shadowedBy = new ArrayList<>();
+        collectShadowing(cd, lts, 0, sortedByMin.length, shadowedBy);
         return shadowedBy;
     }
 
-    public List<Ranges.Range> newerThan(long ts)
+    private void collectShadowing(long cd, long lts, int lo, int hi, List<Range> into)
     {
-        return sortedByMin.stream().filter((rt) -> {
-            return rt.timestamp >= ts;
-        }).collect(Collectors.toList());
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (!mayShadow(mid, cd, lts))
+                return;
+
+            collectShadowing(cd, lts, lo, mid, into);
+
+            Range range = sortedByMin[mid];
+            // All ranges further to the right have the same or greater lower bound
+            if (!admitsLowerBound(range, cd))
+                return;
+
+            if (range.contains(cd, lts))
+                into.add(range);
+
+            lo = mid + 1;
+        }
     }
 
+    /**
+     * Whether any range in the subtree rooted at {@code node} can contain the descriptor and shadow the timestamp.
+     */
+    private boolean mayShadow(int node, long cd, long lts)
+    {
+        if (maxTimestamp[node] < lts)
+            return false;
+
+        return maxBound[node] > cd || (maxBound[node] == cd && maxInclusive[node]);
+    }
 
-    private static int toIdx(int idxOrIP)
+    private static boolean admitsLowerBound(Range range, long cd)
     {
-        if (idxOrIP >= 0)
-            return idxOrIP;
+        return range.minBound < cd || (range.minBound == cd && range.minInclusive);
+    }
 
-        return -1 * (idxOrIP + 1);
+    public List<Ranges.Range> newerThan(long ts)
+    {
+        return Arrays.stream(sortedByMin).filter((rt) -> {
+            return rt.timestamp >= ts;
+        }).collect(Collectors.toList());
     }
 
     public static class Range
@@ -157,7 +284,7 @@ public class Ranges
     public String toString()
     {
         return "Ranges{" +
-               "sortedByMin=" + sortedByMin +
+               "sortedByMin=" + Arrays.toString(sortedByMin) +
                '}';
     }
 }
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without requiring a JDK that has them at compile time.
+ */
+public class VirtualThreads
+{
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookup();
+
+    private static Method lookup()
+    {
+        try
+        {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch (NoSuchMethodException e)
+        {
+            return null;
+        }
+    }
+
+    public static boolean isAvailable()
+    {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per task.
+     *
+     * @throws IllegalStateException if virtual threads are not available in this JVM; callers that can do with
+     *                               platform threads should check {@link #isAvailable()} and pick a bounded pool.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        if (!isAvailable())
+            throw new IllegalStateException(String.format("Virtual threads are not available in this JVM (%s). Use Java 21 or later.",
+                                                          System.getProperty("java.version")));
+        try
+        {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
@@ -103,7 +103,10 @@ public class AllPartitionsValidator implements Visitor
                     {
                         try
                         {
-                            model.validate(Query.selectPartition(schema, pdSelector.pd(visitLts, schema), reverse));
+                            Query query = Query.selectPartition(schema, pdSelector.pd(visitLts, schema), reverse);
+                            long startNanos = System.nanoTime();
+                            model.validate(query);
+                            metricReporter.validation(query.queryKind, System.nanoTime() - startNanos);
                         }
                         catch (Throwable t)
                         {
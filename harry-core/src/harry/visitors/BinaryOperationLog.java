@@ -0,0 +1,410 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import harry.model.OpSelectors;
+
+/**
+ * Binary operation log with fixed-width records, written by {@link LoggingVisitor} instead of the text log.
+ *
+ * Visiting threads claim slots of a lock-free ring buffer and copy the record fields there; a single writer thread
+ * drains the ring in claim order into a file channel, so appending never does any formatting or I/O. Producers only
+ * block if the writer falls a full ring behind.
+ *
+ * File layout: a {@link #HEADER_SIZE}-byte header (magic, version, record size), followed by {@link #RECORD_SIZE}-byte
+ * records of lts, pd, cd, m, opId (longs) and an operation kind ordinal (int, padded to 8 bytes). Records with kind
+ * {@link #FINISHED} mark the end of an LTS and have cd, m and opId unset. Use {@link #decode} or {@link #main} to
+ * render the log as text.
+ *
+ * Next to the log, the writer keeps a sparse index journal ({@link #indexFile}) with an lts, pd and record number
+ * entry for the first record of every LTS, which {@link OperationLogIndex} uses to look up histories.
+ */
+public class BinaryOperationLog implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(BinaryOperationLog.class);
+
+    public static final int MAGIC = 0x48524c47; // HRLG
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 48;
+    public static final int FINISHED = -1;
+    public static final int INDEX_ENTRY_SIZE = 24;
+
+    private static final int FIELDS = 6;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int WRITE_BUFFER_RECORDS = 1024;
+    private static final long PARK_NANOS = 100_000;
+
+    private static final Map<File, BinaryOperationLog> shared = new HashMap<>();
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_SIZE);
+    private final FileChannel indexChannel;
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * INDEX_ENTRY_SIZE);
+    // LTS that have records in the log, but did not finish yet; only accessed by the writer thread
+    private final Set<Long> openLts = new HashSet<>();
+    private boolean failed;
+
+    private final int mask;
+    private final long[] records;
+    // Sequence number of the record last published into each slot
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    // Sequence number of the next record the writer is going to read; slots before it can be reused
+    private volatile long consumed;
+
+    private final Thread writer;
+    private volatile boolean closing;
+    private int references;
+
+    /**
+     * Returns the log writing into the given file, opening it if it is not open yet. Visitors running on different
+     * threads share the same log, and the last one to {@link #release()} it closes it.
+     */
+    public static BinaryOperationLog open(File file)
+    {
+        File key = file.getAbsoluteFile();
+        synchronized (shared)
+        {
+            BinaryOperationLog log = shared.computeIfAbsent(key, f -> new BinaryOperationLog(f, DEFAULT_CAPACITY));
+            log.references++;
+            return log;
+        }
+    }
+
+    public void release()
+    {
+        synchronized (shared)
+        {
+            if (--references > 0)
+                return;
+
+            shared.remove(file);
+        }
+        close();
+    }
+
+    BinaryOperationLog(File file, int capacity)
+    {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity should be a power of two, but was " + capacity);
+
+        this.file = file;
+        this.mask = capacity - 1;
+        this.records = new long[capacity * FIELDS];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            published.set(i, -1);
+
+        try
+        {
+            this.channel = FileChannel.open(file.toPath(),
+                                            StandardOpenOption.CREATE,
+                                            StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+            while (header.hasRemaining())
+                channel.write(header);
+
+            this.indexChannel = FileChannel.open(indexFile(file).toPath(),
+                                                 StandardOpenOption.CREATE,
+                                                 StandardOpenOption.WRITE,
+                                                 StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        this.writer = new Thread(this::drain, "operation-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void operation(long lts, long pd, long cd, long m, long opId, OpSelectors.OperationKind kind)
+    {
+        append(lts, pd, cd, m, opId, kind.ordinal());
+    }
+
+    public void finished(long lts, long pd)
+    {
+        append(lts, pd, 0, 0, 0, FINISHED);
+    }
+
+    private void append(long lts, long pd, long cd, long m, long opId, int kind)
+    {
+        long seq = claimed.getAndIncrement();
+        while (seq - consumed > mask)
+        {
+            if (!writer.isAlive())
+                throw new IllegalStateException("Operation log writer has stopped");
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        int slot = (int) (seq & mask);
+        int offset = slot * FIELDS;
+        records[offset] = lts;
+        records[offset + 1] = pd;
+        records[offset + 2] = cd;
+        records[offset + 3] = m;
+        records[offset + 4] = opId;
+        records[offset + 5] = kind;
+        published.lazySet(slot, seq);
+    }
+
+    private void drain()
+    {
+        long next = 0;
+        while (true)
+        {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next)
+            {
+                flush();
+                if (closing && next == claimed.get())
+                    break;
+
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+
+            int offset = slot * FIELDS;
+            long lts = records[offset];
+            long pd = records[offset + 1];
+            int kind = (int) records[offset + 5];
+            writeBuffer.putLong(lts)
+                       .putLong(pd)
+                       .putLong(records[offset + 2])
+                       .putLong(records[offset + 3])
+                       .putLong(records[offset + 4])
+                       .putInt(kind)
+                       .putInt(0);
+            consumed = ++next;
+
+            boolean first = kind == FINISHED ? !openLts.remove(lts) : openLts.add(lts);
+            if (first)
+                indexBuffer.putLong(lts).putLong(pd).putLong(next - 1);
+
+            if (!writeBuffer.hasRemaining() || !indexBuffer.hasRemaining())
+                flush();
+        }
+    }
+
+    /**
+     * Writes out buffered records and index entries. After a write failure the remaining records are discarded,
+     * so that producers are never blocked by a broken log.
+     */
+    private void flush()
+    {
+        // Index entries are written after the records they point to
+        write(writeBuffer, channel);
+        write(indexBuffer, indexChannel);
+    }
+
+    private void write(ByteBuffer buffer, FileChannel channel)
+    {
+        if (buffer.position() == 0)
+            return;
+
+        buffer.flip();
+        try
+        {
+            if (!failed)
+            {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        }
+        catch (IOException e)
+        {
+            logger.error("Could not write operation log " + file + ", discarding further records", e);
+            failed = true;
+        }
+        finally
+        {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Waits until all appended records are written out and closes the file.
+     */
+    public void close()
+    {
+        closing = true;
+        LockSupport.unpark(writer);
+        try
+        {
+            writer.join();
+            channel.force(false);
+            channel.close();
+            indexChannel.close();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e)
+        {
+            logger.error("Could not close operation log " + file, e);
+        }
+    }
+
+    /**
+     * Index journal written next to the given operation log.
+     */
+    public static File indexFile(File log)
+    {
+        return new File(log.getPath() + ".idx");
+    }
+
+    public static class Record
+    {
+        public long lts;
+        public long pd;
+        public long cd;
+        public long m;
+        public long opId;
+        public int kind;
+
+        public boolean isFinished()
+        {
+            return kind == FINISHED;
+        }
+
+        public OpSelectors.OperationKind operationKind()
+        {
+            return isFinished() ? null : OpSelectors.OperationKind.values()[kind];
+        }
+
+        public String toString()
+        {
+            if (isFinished())
+                return String.format("LTS: %d. Pd %d. Finished", lts, pd);
+
+            return String.format("LTS: %d. Pd %d. Cd %d. M %d. OpId: %d Kind %s",
+                                 lts, pd, cd, m, opId, operationKind());
+        }
+    }
+
+    /**
+     * Sequential reader of a binary operation log. A partially written last record is ignored.
+     */
+    public static class Reader implements Closeable
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * RECORD_SIZE);
+
+        public Reader(File file) throws IOException
+        {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {}
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+                throw new IOException(file + " is not a binary operation log");
+            int version = header.getInt();
+            int recordSize = header.getInt();
+            if (version != VERSION || recordSize != RECORD_SIZE)
+                throw new IOException(String.format("Unsupported operation log version %d with record size %d", version, recordSize));
+            buffer.flip();
+        }
+
+        /**
+         * Positions the reader at the record with the given index.
+         */
+        public void seek(long record) throws IOException
+        {
+            channel.position(HEADER_SIZE + record * RECORD_SIZE);
+            buffer.clear().flip();
+        }
+
+        /**
+         * Reads the next record into {@code into}; returns false once there are no more complete records.
+         */
+        public boolean next(Record into) throws IOException
+        {
+            if (buffer.remaining() < RECORD_SIZE)
+            {
+                buffer.compact();
+                while (buffer.position() < RECORD_SIZE && channel.read(buffer) >= 0) {}
+                buffer.flip();
+                if (buffer.remaining() < RECORD_SIZE)
+                    return false;
+            }
+
+            into.lts = buffer.getLong();
+            into.pd = buffer.getLong();
+            into.cd = buffer.getLong();
+            into.m = buffer.getLong();
+            into.opId = buffer.getLong();
+            into.kind = buffer.getInt();
+            buffer.getInt();
+            return true;
+        }
+
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    public static void decode(File file, PrintStream out) throws IOException
+    {
+        try (Reader reader = new Reader(file))
+        {
+            Record record = new Record();
+            while (reader.next(record))
+                out.println(record);
+        }
+    }
+
+    /**
+     * Renders the given binary operation log as text to stdout.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.err.println("Usage: BinaryOperationLog <operation.bin>");
+            System.exit(1);
+        }
+        decode(new File(args[0]), System.out);
+    }
+}
@@ -21,6 +21,7 @@ package harry.visitors;
 import harry.core.Run;
 import harry.ddl.SchemaSpec;
 import harry.model.OpSelectors;
+import harry.model.clock.LtsLease;
 
 public class GeneratingVisitor extends LtsVisitor
 {
@@ -28,10 +29,25 @@ public class GeneratingVisitor extends LtsVisitor
     private final OpSelectors.DescriptorSelector descriptorSelector;
     private final SchemaSpec schema;
 
+    // Descriptors of the operations of the LTS being visited, grown on demand
+    private long[] cds = new long[0];
+    private OpSelectors.OperationKind[] opTypes = new OpSelectors.OperationKind[0];
+
     public GeneratingVisitor(Run run,
                              VisitExecutor delegate)
     {
-        super(delegate, run.clock::nextLts);
+        this(run, delegate, 1);
+    }
+
+    /**
+     * @param ltsLeaseSize number of consecutive LTS to draw from the clock at once; leased LTS that were not
+     *                     visited by the time the runner stops are visited in {@link #drain()}.
+     */
+    public GeneratingVisitor(Run run,
+                             VisitExecutor delegate,
+                             int ltsLeaseSize)
+    {
+        super(delegate, ltsLeaseSize == 1 ? run.clock::nextLts : new LtsLease(run.clock, ltsLeaseSize));
 
         this.pdSelector = run.pdSelector;
         this.descriptorSelector = run.descriptorSelector;
@@ -51,15 +67,21 @@ public class GeneratingVisitor extends LtsVisitor
         int modificationsCount = descriptorSelector.numberOfModifications(lts);
         int opsPerModification = descriptorSelector.opsPerModification(lts);
 
+        int operationsCount = modificationsCount * opsPerModification;
+        if (cds.length < operationsCount)
+        {
+            cds = new long[operationsCount];
+            opTypes = new OpSelectors.OperationKind[operationsCount];
+        }
+        descriptorSelector.operations(pd, lts, schema, cds, opTypes, null);
+
         for (long m = 0; m < modificationsCount; m++)
         {
             beforeBatch(lts, pd, m);
             for (long i = 0; i < opsPerModification; i++)
             {
-                long opId = m * opsPerModification + i;
-                long cd = descriptorSelector.cd(pd, lts, opId, schema);
-                OpSelectors.OperationKind opType = descriptorSelector.operationType(pd, lts, opId);
-                operation(lts, pd, cd, m, opId, opType);
+                int opId = (int) (m * opsPerModification + i);
+                operation(lts, pd, cds[opId], m, opId, opTypes[opId]);
             }
             afterBatch(lts, pd, m);
         }
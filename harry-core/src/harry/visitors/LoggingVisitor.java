@@ -34,7 +34,18 @@ public class LoggingVisitor extends GeneratingVisitor
     public LoggingVisitor(Run run,
                           OperationExecutor.RowVisitorFactory rowVisitorFactory)
     {
-        super(run, new LoggingVisitorExecutor(run, rowVisitorFactory.make(run)));
+        this(run, rowVisitorFactory, false);
+    }
+
+    /**
+     * @param binary whether to write a {@link BinaryOperationLog} to {@code operation.bin} instead of the text log
+     */
+    public LoggingVisitor(Run run,
+                          OperationExecutor.RowVisitorFactory rowVisitorFactory,
+                          boolean binary)
+    {
+        super(run, binary ? new BinaryLoggingVisitorExecutor(run, rowVisitorFactory.make(run))
+                          : new LoggingVisitorExecutor(run, rowVisitorFactory.make(run)));
     }
 
     public static class LoggingVisitorExecutor extends MutatingVisitor.MutatingVisitExecutor
@@ -86,4 +97,42 @@ public class LoggingVisitor extends GeneratingVisitor
             }
         }
     }
+
+    public static class BinaryLoggingVisitorExecutor extends MutatingVisitor.MutatingVisitExecutor
+    {
+        private final BinaryOperationLog operationLog;
+
+        public BinaryLoggingVisitorExecutor(Run run, OperationExecutor rowVisitor)
+        {
+            super(run, rowVisitor);
+            this.operationLog = BinaryOperationLog.open(new File("operation.bin"));
+        }
+
+        public void afterLts(long lts, long pd)
+        {
+            super.afterLts(lts, pd);
+            operationLog.finished(lts, pd);
+        }
+
+        @Override
+        protected CompiledStatement operationInternal(long lts, long pd, long cd, long m, long opId, OpSelectors.OperationKind opType)
+        {
+            CompiledStatement statement = super.operationInternal(lts, pd, cd, m, opId, opType);
+            operationLog.operation(lts, pd, cd, m, opId, opType);
+            return statement;
+        }
+
+        @Override
+        public void shutdown() throws InterruptedException
+        {
+            try
+            {
+                super.shutdown();
+            }
+            finally
+            {
+                operationLog.release();
+            }
+        }
+    }
 }
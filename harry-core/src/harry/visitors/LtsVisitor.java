@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import harry.model.OpSelectors;
+import harry.model.clock.LtsLease;
 
 /**
  * Common class for all visitors that support visits at a specific logical timestamp.
@@ -58,6 +59,23 @@ public abstract class LtsVisitor extends VisitExecutor implements Visitor
 
     public abstract void visit(long lts);
 
+    /**
+     * Visits LTS that are left in the lease, if LTS are leased from the clock in blocks, and waits for the ones
+     * that are still in flight.
+     */
+    @Override
+    public void drain()
+    {
+        if (ltsSource instanceof LtsLease)
+        {
+            LtsLease lease = (LtsLease) ltsSource;
+            while (lease.remaining() > 0)
+                visit(lease.getAsLong());
+        }
+
+        awaitInFlight();
+    }
+
     @Override
     protected void beforeLts(long lts, long pd)
     {
@@ -88,6 +106,12 @@ public abstract class LtsVisitor extends VisitExecutor implements Visitor
         delegate.afterBatch(lts, pd, m);
     }
 
+    @Override
+    protected void awaitInFlight()
+    {
+        delegate.awaitInFlight();
+    }
+
     @Override
     public void shutdown() throws InterruptedException
     {
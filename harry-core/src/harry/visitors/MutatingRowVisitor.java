@@ -38,6 +38,10 @@ public class MutatingRowVisitor implements OperationExecutor
     protected final QueryGenerator rangeSelector;
     protected final MetricReporter metricReporter;
 
+    // Scratch buffers for value descriptors; visitors are confined to a single thread, and WriteHelper does not retain them
+    private final long[] vds;
+    private final long[] sds;
+
     public MutatingRowVisitor(Run run)
     {
         this(run.schemaSpec,
@@ -59,35 +63,37 @@ public class MutatingRowVisitor implements OperationExecutor
         this.clock = clock;
         this.descriptorSelector = descriptorSelector;
         this.rangeSelector = rangeSelector;
+        this.vds = new long[schema.regularColumns.size()];
+        this.sds = new long[schema.staticColumns.size()];
     }
 
     public CompiledStatement insert(long lts, long pd, long cd, long opId)
     {
         metricReporter.insert();
-        long[] vds = descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.INSERT, schema);
+        descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.INSERT, schema, vds);
         return WriteHelper.inflateInsert(schema, pd, cd, vds, null, clock.rts(lts));
     }
 
     public CompiledStatement insertWithStatics(long lts, long pd, long cd, long opId)
     {
         metricReporter.insert();
-        long[] vds = descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.INSERT_WITH_STATICS, schema);
-        long[] sds = descriptorSelector.sds(pd, cd, lts, opId, OpSelectors.OperationKind.INSERT_WITH_STATICS, schema);
+        descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.INSERT_WITH_STATICS, schema, vds);
+        descriptorSelector.sds(pd, cd, lts, opId, OpSelectors.OperationKind.INSERT_WITH_STATICS, schema, sds);
         return WriteHelper.inflateInsert(schema, pd, cd, vds, sds, clock.rts(lts));
     }
 
     public CompiledStatement update(long lts, long pd, long cd, long opId)
     {
         metricReporter.insert();
-        long[] vds = descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.UPDATE, schema);
+        descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.UPDATE, schema, vds);
         return WriteHelper.inflateUpdate(schema, pd, cd, vds, null, clock.rts(lts));
     }
 
     public CompiledStatement updateWithStatics(long lts, long pd, long cd, long opId)
     {
         metricReporter.insert();
-        long[] vds = descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.UPDATE_WITH_STATICS, schema);
-        long[] sds = descriptorSelector.sds(pd, cd, lts, opId, OpSelectors.OperationKind.UPDATE_WITH_STATICS, schema);
+        descriptorSelector.vds(pd, cd, lts, opId, OpSelectors.OperationKind.UPDATE_WITH_STATICS, schema, vds);
+        descriptorSelector.sds(pd, cd, lts, opId, OpSelectors.OperationKind.UPDATE_WITH_STATICS, schema, sds);
         return WriteHelper.inflateUpdate(schema, pd, cd, vds, sds, clock.rts(lts));
     }
 
@@ -19,16 +19,18 @@
 package harry.visitors;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import harry.core.MetricReporter;
 import harry.core.Run;
 import harry.model.OpSelectors;
 import harry.model.sut.SystemUnderTest;
@@ -42,7 +44,22 @@ public class MutatingVisitor extends GeneratingVisitor
     public MutatingVisitor(Run run,
                            OperationExecutor.RowVisitorFactory rowVisitorFactory)
     {
-        this(run, new MutatingVisitExecutor(run, rowVisitorFactory.make(run)));
+        this(run, rowVisitorFactory, 1);
+    }
+
+    public MutatingVisitor(Run run,
+                           OperationExecutor.RowVisitorFactory rowVisitorFactory,
+                           int maxInFlightLts)
+    {
+        this(run, rowVisitorFactory, maxInFlightLts, 1);
+    }
+
+    public MutatingVisitor(Run run,
+                           OperationExecutor.RowVisitorFactory rowVisitorFactory,
+                           int maxInFlightLts,
+                           int ltsLeaseSize)
+    {
+        super(run, new MutatingVisitExecutor(run, rowVisitorFactory.make(run), maxInFlightLts), ltsLeaseSize);
     }
 
     public MutatingVisitor(Run run,
@@ -51,10 +68,18 @@ public class MutatingVisitor extends GeneratingVisitor
         super(run, visitExecutor);
     }
 
+    /**
+     * Executes every LTS as a series of batches.
+     *
+     * By default, the visitor waits for all batches of an LTS to complete before moving on. When {@code maxInFlightLts}
+     * is larger than 1, up to that many LTS are kept outstanding, and LTS is marked as finished in the data tracker from
+     * the completion callback. Validators that require quiescence will only see the state up to the last consecutively
+     * finished LTS in this mode, so they are better run by a separate runner.
+     */
     public static class MutatingVisitExecutor extends VisitExecutor
     {
-        private final List<String> statements = new ArrayList<>();
-        private final List<Object> bindings = new ArrayList<>();
+        private final List<CompiledStatement> statements = new ArrayList<>();
+        private final List<OpSelectors.OperationKind> operationKinds = new ArrayList<>();
 
         private final List<CompletableFuture<?>> futures = new ArrayList<>();
 
@@ -63,26 +88,74 @@ public class MutatingVisitor extends GeneratingVisitor
         protected final OpSelectors.DescriptorSelector descriptorSelector;
         protected final DataTracker tracker;
         protected final SystemUnderTest sut;
+        protected final MetricReporter metricReporter;
         protected final OperationExecutor rowVisitor;
+        private static final int IN_FLIGHT_TIMEOUT_SECONDS = 30;
         private final int maxRetries = 10;
 
+        private final int maxInFlightLts;
+        private final Semaphore inFlight;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
         public MutatingVisitExecutor(Run run, OperationExecutor rowVisitor)
         {
+            this(run, rowVisitor, 1);
+        }
+
+        public MutatingVisitExecutor(Run run, OperationExecutor rowVisitor, int maxInFlightLts)
+        {
+            if (maxInFlightLts < 1)
+                throw new IllegalArgumentException("Max in-flight LTS should be positive, but was " + maxInFlightLts);
+
             this.descriptorSelector = run.descriptorSelector;
             this.tracker = run.tracker;
             this.sut = run.sut;
+            this.metricReporter = run.metricReporter;
             this.rowVisitor = rowVisitor;
+            this.maxInFlightLts = maxInFlightLts;
+            this.inFlight = new Semaphore(maxInFlightLts);
+        }
+
+        private boolean isPipelined()
+        {
+            return maxInFlightLts > 1;
         }
 
         @Override
         public void beforeLts(long lts, long pd)
         {
+            if (isPipelined())
+            {
+                checkFailure();
+                inFlight.acquireUninterruptibly();
+            }
             tracker.started(lts);
         }
 
         @Override
         public void afterLts(long lts, long pd)
         {
+            if (isPipelined())
+            {
+                CompletableFuture<?>[] pending = futures.toArray(new CompletableFuture<?>[0]);
+                futures.clear();
+                CompletableFuture.allOf(pending).whenComplete((res, t) -> {
+                    try
+                    {
+                        // Failed LTS is never marked as finished, and the visitor fails on the next LTS
+                        if (t != null)
+                            failure.compareAndSet(null, t);
+                        else
+                            tracker.finished(lts);
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                });
+                return;
+            }
+
             for (CompletableFuture<?> future : futures)
             {
                 try
@@ -98,20 +171,25 @@ public class MutatingVisitor extends GeneratingVisitor
             tracker.finished(lts);
         }
 
+        private void checkFailure()
+        {
+            Throwable t = failure.get();
+            if (t != null)
+                throw new IllegalStateException("Couldn't repeat operations within timeout bounds.", t);
+        }
+
         @Override
         public void beforeBatch(long lts, long pd, long m)
         {
             statements.clear();
-            bindings.clear();
+            operationKinds.clear();
         }
 
         @Override
         public void operation(long lts, long pd, long cd, long m, long opId, OpSelectors.OperationKind opType)
         {
-            CompiledStatement statement = operationInternal(lts, pd, cd, m, opId, opType);
-
-            statements.add(statement.cql());
-            Collections.addAll(bindings, statement.bindings());
+            statements.add(operationInternal(lts, pd, cd, m, opId, opType));
+            operationKinds.add(opType);
         }
 
         protected CompiledStatement operationInternal(long lts, long pd, long cd, long m, long opId, OpSelectors.OperationKind opType)
@@ -128,20 +206,23 @@ public class MutatingVisitor extends GeneratingVisitor
                 return;
             }
 
-            String query = String.join(" ", statements);
-
-            if (statements.size() > 1)
-                query = String.format("BEGIN UNLOGGED BATCH\n%s\nAPPLY BATCH;", query);
-
-            Object[] bindingsArray = new Object[bindings.size()];
-            bindings.toArray(bindingsArray);
-
+            long startNanos = System.nanoTime();
+            OpSelectors.OperationKind[] kinds = operationKinds.toArray(new OpSelectors.OperationKind[0]);
             CompletableFuture<Object[][]> future = new CompletableFuture<>();
-            executeAsyncWithRetries(lts, pd, future, new CompiledStatement(query, bindingsArray));
+            future.whenComplete((res, t) -> {
+                if (t != null)
+                    return;
+
+                long latencyNanos = System.nanoTime() - startNanos;
+                metricReporter.batch(kinds.length, latencyNanos);
+                for (OpSelectors.OperationKind kind : kinds)
+                    metricReporter.operation(kind, latencyNanos);
+            });
+            executeAsyncWithRetries(lts, pd, future, CompiledStatement.unloggedBatch(statements));
             futures.add(future);
 
             statements.clear();
-            bindings.clear();
+            operationKinds.clear();
         }
 
         protected void executeAsyncWithRetries(long lts, long pd, CompletableFuture<Object[][]> future, CompiledStatement statement)
@@ -155,9 +236,13 @@ public class MutatingVisitor extends GeneratingVisitor
                 throw new IllegalStateException("System under test is shut down");
 
             if (retries > this.maxRetries)
-                throw new IllegalStateException(String.format("Can not execute statement %s after %d retries", statement, retries));
+            {
+                // Retries are scheduled on the executor, so throwing here would leave the future incomplete
+                future.completeExceptionally(new IllegalStateException(String.format("Can not execute statement %s after %d retries", statement, retries)));
+                return;
+            }
 
-            sut.executeAsync(statement.cql(), SystemUnderTest.ConsistencyLevel.QUORUM, statement.bindings())
+            sut.executePreparedAsync(statement, SystemUnderTest.ConsistencyLevel.QUORUM)
                .whenComplete((res, t) -> {
                    if (t != null)
                    {
@@ -168,10 +253,43 @@ public class MutatingVisitor extends GeneratingVisitor
                });
         }
 
+        @Override
+        protected void awaitInFlight()
+        {
+            try
+            {
+                awaitInFlightInternal();
+            }
+            catch (InterruptedException e)
+            {
+                // Runner is shutting down; shutdown() waits for in-flight LTS again
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void awaitInFlightInternal() throws InterruptedException
+        {
+            if (!isPipelined())
+                return;
+
+            if (!inFlight.tryAcquire(maxInFlightLts, IN_FLIGHT_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                throw new IllegalStateException(String.format("Timed out after %ds while waiting for %d in-flight LTS to complete",
+                                                              IN_FLIGHT_TIMEOUT_SECONDS, maxInFlightLts - inFlight.availablePermits()));
+            inFlight.release(maxInFlightLts);
+            checkFailure();
+        }
+
         public void shutdown() throws InterruptedException
         {
-            executor.shutdown();
-            executor.awaitTermination(30, TimeUnit.SECONDS);
+            try
+            {
+                awaitInFlightInternal();
+            }
+            finally
+            {
+                executor.shutdown();
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            }
         }
     }
 }
@@ -0,0 +1,351 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static harry.visitors.BinaryOperationLog.INDEX_ENTRY_SIZE;
+
+/**
+ * Looks up records of a {@link BinaryOperationLog} by partition or LTS range without scanning the log.
+ *
+ * The index journal written next to the log holds an entry for the first record of every LTS in log order. On the
+ * first lookup it is sorted once into {@link #sortedIndexFile}, which holds all entries ordered by pd and LTS, followed
+ * by all entries ordered by LTS. Lookups binary search the sorted file and then read the log from the first record of
+ * every matching LTS up to its finish marker, skipping records of LTS visited concurrently.
+ */
+public class OperationLogIndex implements Closeable
+{
+    private static final int MAGIC = 0x48524c49; // HRLI
+    private static final int HEADER_SIZE = 24;
+    // Number of records to read past the last record of an LTS that has no finish marker, e.g. after a crash
+    private static final int SCAN_LIMIT = 1 << 20;
+    private static final int BUFFER_ENTRIES = 4096;
+
+    private final FileChannel index;
+    private final BinaryOperationLog.Reader log;
+    private final long count;
+    private final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+    private OperationLogIndex(File log, File sortedIndex) throws IOException
+    {
+        this.index = FileChannel.open(sortedIndex.toPath(), StandardOpenOption.READ);
+        ByteBuffer header = read(index, 0, HEADER_SIZE);
+        header.getInt();
+        header.getInt();
+        header.getLong();
+        this.count = header.getLong();
+        this.log = new BinaryOperationLog.Reader(log);
+    }
+
+    /**
+     * Opens the index of the given operation log, sorting its index journal first if it was not sorted yet or has
+     * changed since.
+     */
+    public static OperationLogIndex open(File log) throws IOException
+    {
+        File journal = BinaryOperationLog.indexFile(log);
+        if (!journal.exists())
+            throw new IOException("Operation log " + log + " has no index " + journal);
+
+        File sorted = sortedIndexFile(log);
+        long journalLength = journal.length();
+        if (!isCurrent(sorted, journalLength))
+            sort(journal, journalLength, sorted);
+
+        return new OperationLogIndex(log, sorted);
+    }
+
+    public static File sortedIndexFile(File log)
+    {
+        return new File(BinaryOperationLog.indexFile(log).getPath() + ".sorted");
+    }
+
+    /**
+     * Number of LTS in the index.
+     */
+    public long size()
+    {
+        return count;
+    }
+
+    /**
+     * All records of the given partition, in LTS order. Every LTS ends with its finish marker, unless the log
+     * was cut short.
+     */
+    public List<BinaryOperationLog.Record> partition(long pd) throws IOException
+    {
+        List<BinaryOperationLog.Record> history = new ArrayList<>();
+        for (long i = lowerBound(0, pd, Long.MIN_VALUE); i < count; i++)
+        {
+            ByteBuffer e = entry(0, i);
+            long lts = e.getLong();
+            if (e.getLong() != pd)
+                break;
+
+            collect(lts, e.getLong(), history);
+        }
+        return history;
+    }
+
+    /**
+     * All records of LTS between {@code minLts} and {@code maxLts}, both inclusive, in LTS order.
+     */
+    public List<BinaryOperationLog.Record> lts(long minLts, long maxLts) throws IOException
+    {
+        List<BinaryOperationLog.Record> history = new ArrayList<>();
+        for (long i = lowerBound(count, minLts, Long.MIN_VALUE); i < count; i++)
+        {
+            ByteBuffer e = entry(count, i);
+            long lts = e.getLong();
+            if (lts > maxLts)
+                break;
+
+            e.getLong();
+            collect(lts, e.getLong(), history);
+        }
+        return history;
+    }
+
+    private void collect(long lts, long firstRecord, List<BinaryOperationLog.Record> into) throws IOException
+    {
+        log.seek(firstRecord);
+        long sinceLast = 0;
+        BinaryOperationLog.Record record = new BinaryOperationLog.Record();
+        while (sinceLast < SCAN_LIMIT && log.next(record))
+        {
+            if (record.lts != lts)
+            {
+                sinceLast++;
+                continue;
+            }
+
+            into.add(record);
+            if (record.isFinished())
+                return;
+
+            sinceLast = 0;
+            record = new BinaryOperationLog.Record();
+        }
+    }
+
+    /**
+     * Position of the first entry in the section starting at {@code section} that is not less than
+     * {@code (key, secondaryKey)}. The pd section is keyed by pd and LTS, and the LTS section by LTS and record.
+     */
+    private long lowerBound(long section, long key, long secondaryKey) throws IOException
+    {
+        long lo = 0;
+        long hi = count;
+        while (lo < hi)
+        {
+            long mid = (lo + hi) >>> 1;
+            ByteBuffer e = entry(section, mid);
+            long lts = e.getLong();
+            long pd = e.getLong();
+            long record = e.getLong();
+            int cmp = section == 0 ? compare(pd, lts, key, secondaryKey) : compare(lts, record, key, secondaryKey);
+            if (cmp < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private ByteBuffer entry(long section, long i) throws IOException
+    {
+        entry.clear();
+        long position = HEADER_SIZE + (section + i) * INDEX_ENTRY_SIZE;
+        while (entry.hasRemaining())
+        {
+            if (index.read(entry, position + entry.position()) < 0)
+                throw new IOException("Index is truncated");
+        }
+        entry.flip();
+        return entry;
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            index.close();
+        }
+        finally
+        {
+            log.close();
+        }
+    }
+
+    private static boolean isCurrent(File sorted, long journalLength) throws IOException
+    {
+        if (!sorted.exists() || sorted.length() < HEADER_SIZE)
+            return false;
+
+        try (FileChannel channel = FileChannel.open(sorted.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            return header.getInt() == MAGIC && header.getInt() == BinaryOperationLog.VERSION && header.getLong() == journalLength;
+        }
+    }
+
+    private static void sort(File journal, long journalLength, File sorted) throws IOException
+    {
+        int count = Math.toIntExact(journalLength / INDEX_ENTRY_SIZE);
+        long[] lts = new long[count];
+        long[] pds = new long[count];
+        long[] records = new long[count];
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_ENTRIES * INDEX_ENTRY_SIZE);
+        try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.READ))
+        {
+            buffer.flip();
+            for (int i = 0; i < count; i++)
+            {
+                if (!buffer.hasRemaining())
+                {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), (long) (count - i) * INDEX_ENTRY_SIZE));
+                    while (buffer.hasRemaining())
+                    {
+                        if (channel.read(buffer) < 0)
+                            throw new IOException("Unexpected end of file");
+                    }
+                    buffer.flip();
+                }
+                lts[i] = buffer.getLong();
+                pds[i] = buffer.getLong();
+                records[i] = buffer.getLong();
+            }
+        }
+
+        File tmp = new File(sorted.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(),
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(BinaryOperationLog.VERSION).putLong(journalLength).putLong(count);
+
+            sort(pds, lts, records, 0, count - 1);
+            write(channel, buffer, lts, pds, records);
+
+            sort(lts, records, pds, 0, count - 1);
+            write(channel, buffer, lts, pds, records);
+
+            flush(channel, buffer);
+        }
+        Files.move(tmp.toPath(), sorted.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long[] lts, long[] pds, long[] records) throws IOException
+    {
+        for (int i = 0; i < lts.length; i++)
+        {
+            if (buffer.remaining() < INDEX_ENTRY_SIZE)
+                flush(channel, buffer);
+            buffer.putLong(lts[i]).putLong(pds[i]).putLong(records[i]);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Sorts parallel arrays by {@code (keys, secondaryKeys)}.
+     */
+    private static void sort(long[] keys, long[] secondaryKeys, long[] values, int lo, int hi)
+    {
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            long pivot = keys[mid];
+            long secondaryPivot = secondaryKeys[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j)
+            {
+                while (compare(keys[i], secondaryKeys[i], pivot, secondaryPivot) < 0)
+                    i++;
+                while (compare(keys[j], secondaryKeys[j], pivot, secondaryPivot) > 0)
+                    j--;
+                if (i <= j)
+                {
+                    swap(keys, i, j);
+                    swap(secondaryKeys, i, j);
+                    swap(values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            // Recurse into the smaller part to bound the stack depth
+            if (j - lo < hi - i)
+            {
+                sort(keys, secondaryKeys, values, lo, j);
+                lo = i;
+            }
+            else
+            {
+                sort(keys, secondaryKeys, values, i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    private static int compare(long key, long secondaryKey, long otherKey, long otherSecondaryKey)
+    {
+        int cmp = Long.compare(key, otherKey);
+        return cmp != 0 ? cmp : Long.compare(secondaryKey, otherSecondaryKey);
+    }
+
+    private static void swap(long[] arr, int i, int j)
+    {
+        long tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -18,12 +18,6 @@
 
 package harry.visitors;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
@@ -49,11 +43,19 @@ public class ParallelRecentValidator extends ParallelValidator<ParallelRecentVal
     private final int queries;
     private final QueryGenerator.TypedQueryGenerator querySelector;
     private final Model model;
-    private final BufferedWriter validationLog;
+    private final ValidationLog validationLog;
 
     public ParallelRecentValidator(int partitionCount, int concurrency, int triggerAfter, int queries,
                                    Run run,
                                    Model.ModelFactory modelFactory)
+    {
+        this(partitionCount, concurrency, triggerAfter, queries, run, modelFactory, true);
+    }
+
+    public ParallelRecentValidator(int partitionCount, int concurrency, int triggerAfter, int queries,
+                                   Run run,
+                                   Model.ModelFactory modelFactory,
+                                   boolean logQueries)
     {
         super(concurrency, triggerAfter, run);
         this.partitionCount = partitionCount;
@@ -63,15 +65,7 @@ public class ParallelRecentValidator extends ParallelValidator<ParallelRecentVal
                                                                     Surjections.enumValues(Query.QueryKind.class),
                                                                     run.rangeSelector);
         this.model = modelFactory.make(run);
-        File f = new File("validation.log");
-        try
-        {
-            validationLog = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f)));
-        }
-        catch (FileNotFoundException e)
-        {
-            throw new RuntimeException(e);
-        }
+        this.validationLog = ValidationLog.open("parallel-recent", logQueries);
     }
 
     protected void doOne(State state)
@@ -85,8 +79,10 @@ public class ParallelRecentValidator extends ParallelValidator<ParallelRecentVal
         {
             run.metricReporter.validateRandomQuery();
             Query query = querySelector.inflate(visitLts, i);
+            long startNanos = System.nanoTime();
             model.validate(query);
-            log(visitLts, i, query);
+            run.metricReporter.validation(query.queryKind, System.nanoTime() - startNanos);
+            validationLog.log(visitLts, i, query);
         }
     }
 
@@ -122,19 +118,16 @@ public class ParallelRecentValidator extends ParallelValidator<ParallelRecentVal
         }
     }
 
-    private void log(long lts, int modifier, Query query)
+    @Override
+    public void shutdown() throws InterruptedException
     {
         try
         {
-            validationLog.write("LTS: " + lts + ". Modifier: " + modifier + ". PD: " + query.pd);
-            validationLog.write("\t");
-            validationLog.write(query.toSelectStatement().toString());
-            validationLog.write("\n");
-            validationLog.flush();
+            super.shutdown();
         }
-        catch (IOException e)
+        finally
         {
-            // ignore
+            validationLog.close();
         }
     }
 
@@ -146,6 +139,16 @@ public class ParallelRecentValidator extends ParallelValidator<ParallelRecentVal
         public final int queries;
         public final int concurrency;
         public final Configuration.ModelConfiguration modelConfiguration;
+        public final boolean log_queries;
+
+        public ParallelRecentValidatorConfig(int partition_count,
+                                             int concurrency,
+                                             int trigger_after,
+                                             int queries,
+                                             Configuration.ModelConfiguration model)
+        {
+            this(partition_count, concurrency, trigger_after, queries, model, true);
+        }
 
         // TODO: make query selector configurable
         @JsonCreator
@@ -153,19 +156,21 @@ public class ParallelRecentValidator extends ParallelValidator<ParallelRecentVal
                                              @JsonProperty("concurrency") int concurrency,
                                              @JsonProperty("trigger_after") int trigger_after,
                                              @JsonProperty("queries_per_partition") int queries,
-                                             @JsonProperty("model") Configuration.ModelConfiguration model)
+                                             @JsonProperty("model") Configuration.ModelConfiguration model,
+                                             @JsonProperty(value = "log_queries", defaultValue = "true") Boolean log_queries)
         {
             this.partition_count = partition_count;
             this.concurrency = concurrency;
             this.queries = queries;
             this.trigger_after = trigger_after;
             this.modelConfiguration = model;
+            this.log_queries = log_queries == null || log_queries;
         }
 
         @Override
         public Visitor make(Run run)
         {
-            return new ParallelRecentValidator(partition_count, concurrency, trigger_after, queries, run, modelConfiguration);
+            return new ParallelRecentValidator(partition_count, concurrency, trigger_after, queries, run, modelConfiguration, log_queries);
         }
     }
 
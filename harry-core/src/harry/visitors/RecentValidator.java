@@ -18,12 +18,6 @@
 
 package harry.visitors;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -42,7 +36,7 @@ import harry.operations.QueryGenerator;
 
 public class RecentValidator implements Visitor
 {
-    private final BufferedWriter validationLog;
+    private final ValidationLog validationLog;
     private static final Logger logger = LoggerFactory.getLogger(RecentValidator.class);
     private final Model model;
 
@@ -62,6 +56,16 @@ public class RecentValidator implements Visitor
                            int triggerAfter,
                            Run run,
                            Model.ModelFactory modelFactory)
+    {
+        this(partitionCount, queries, triggerAfter, run, modelFactory, true);
+    }
+
+    public RecentValidator(int partitionCount,
+                           int queries,
+                           int triggerAfter,
+                           Run run,
+                           Model.ModelFactory modelFactory,
+                           boolean logQueries)
     {
         this.partitionCount = partitionCount;
         this.queries = queries;
@@ -82,15 +86,7 @@ public class RecentValidator implements Visitor
                                                                     Surjections.enumValues(Query.QueryKind.class),
                                                                     run.rangeSelector);
         this.model = modelFactory.make(run);
-        File f = new File("validation.log");
-        try
-        {
-            validationLog = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f)));
-        }
-        catch (FileNotFoundException e)
-        {
-            throw new RuntimeException(e);
-        }
+        this.validationLog = ValidationLog.open("recent", logQueries);
     }
 
     // TODO: expose metric, how many times validated recent partitions
@@ -107,8 +103,10 @@ public class RecentValidator implements Visitor
                 metricReporter.validateRandomQuery();
                 Query query = querySelector.inflate(visitLts, i);
                 // TODO: add pd skipping from shrinker here, too
-                log(i, query);
+                validationLog.log(visitLts, i, query);
+                long startNanos = System.nanoTime();
                 model.validate(query);
+                metricReporter.validation(query.queryKind, System.nanoTime() - startNanos);
             }
 
             pos--;
@@ -130,19 +128,9 @@ public class RecentValidator implements Visitor
         }
     }
 
-    private void log(int modifier, Query query)
+    @Override
+    public void shutdown()
     {
-        try
-        {
-            validationLog.write(String.format("PD: %d. Modifier: %d.", query.pd, modifier));
-            validationLog.write("\t");
-            validationLog.write(query.toSelectStatement().toString());
-            validationLog.write("\n");
-            validationLog.flush();
-        }
-        catch (IOException e)
-        {
-            // ignore
-        }
+        validationLog.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import harry.operations.Query;
+
+/**
+ * Log of queries issued by validators. All validators of a run write to {@code validation.log} through a single
+ * writer thread, which renders statements and flushes once per batch of queued records, so validating threads only
+ * enqueue a record. Every line is tagged with the name of the validator that issued the query, since validators
+ * run concurrently.
+ */
+public class ValidationLog
+{
+    private static final Logger logger = LoggerFactory.getLogger(ValidationLog.class);
+
+    public static final ValidationLog DISABLED = new ValidationLog(null, null);
+
+    private static final File DEFAULT_FILE = new File("validation.log");
+    private static final int QUEUE_SIZE = 1 << 14;
+    private static final Map<File, Appender> appenders = new HashMap<>();
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final String tag;
+    private final Appender appender;
+
+    private ValidationLog(String tag, Appender appender)
+    {
+        this.tag = tag;
+        this.appender = appender;
+    }
+
+    /**
+     * Opens a log for a validator, tagged with the given name and a sequence number. If {@code enabled} is false,
+     * nothing is logged, and queries are never rendered.
+     */
+    public static ValidationLog open(String validator, boolean enabled)
+    {
+        return enabled ? open(DEFAULT_FILE, validator) : DISABLED;
+    }
+
+    static ValidationLog open(File file, String validator)
+    {
+        File key = file.getAbsoluteFile();
+        synchronized (appenders)
+        {
+            Appender appender = appenders.computeIfAbsent(key, Appender::new);
+            appender.references++;
+            return new ValidationLog(validator + "-" + ids.getAndIncrement(), appender);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return appender != null;
+    }
+
+    public void log(long lts, int modifier, Query query)
+    {
+        if (appender == null)
+            return;
+
+        appender.append(new Entry(tag, lts, modifier, query));
+    }
+
+    /**
+     * Releases the log. Once all validators writing to the file have released their logs, waits for queued records
+     * to be written out and closes it.
+     */
+    public void close()
+    {
+        if (appender == null)
+            return;
+
+        synchronized (appenders)
+        {
+            if (--appender.references > 0)
+                return;
+
+            appenders.remove(appender.file);
+        }
+        appender.close();
+    }
+
+    private static class Entry
+    {
+        private final String tag;
+        private final long lts;
+        private final int modifier;
+        private final Query query;
+
+        private Entry(String tag, long lts, int modifier, Query query)
+        {
+            this.tag = tag;
+            this.lts = lts;
+            this.modifier = modifier;
+            this.query = query;
+        }
+    }
+
+    private static class Appender
+    {
+        private static final Entry CLOSE = new Entry(null, 0, 0, null);
+
+        private final File file;
+        private final BufferedWriter writer;
+        private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final Thread thread;
+        private int references;
+
+        private Appender(File file)
+        {
+            this.file = file;
+            try
+            {
+                this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            this.thread = new Thread(this::run, "validation-log-writer");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void append(Entry entry)
+        {
+            try
+            {
+                queue.put(entry);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run()
+        {
+            List<Entry> batch = new ArrayList<>();
+            boolean failed = false;
+            while (true)
+            {
+                try
+                {
+                    batch.add(queue.take());
+                }
+                catch (InterruptedException e)
+                {
+                    // Writer is only stopped by the close marker
+                    continue;
+                }
+                queue.drainTo(batch);
+
+                boolean closed = false;
+                try
+                {
+                    for (Entry entry : batch)
+                    {
+                        if (entry == CLOSE)
+                        {
+                            closed = true;
+                            continue;
+                        }
+
+                        if (!failed)
+                        {
+                            writer.write(String.format("[%s] LTS: %d. Modifier: %d. PD: %d",
+                                                       entry.tag, entry.lts, entry.modifier, entry.query.pd));
+                            writer.write("\t");
+                            writer.write(entry.query.toSelectStatement().toString());
+                            writer.write("\n");
+                        }
+                    }
+
+                    if (!failed)
+                        writer.flush();
+                }
+                catch (IOException e)
+                {
+                    logger.error("Could not write validation log " + file + ", discarding further records", e);
+                    failed = true;
+                }
+                batch.clear();
+
+                if (closed)
+                    break;
+            }
+
+            try
+            {
+                writer.close();
+            }
+            catch (IOException e)
+            {
+                logger.error("Could not close validation log " + file, e);
+            }
+        }
+
+        private void close()
+        {
+            append(CLOSE);
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
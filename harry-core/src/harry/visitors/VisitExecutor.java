@@ -32,5 +32,13 @@ public abstract class VisitExecutor
 
     protected abstract void afterBatch(long lts, long pd, long m);
 
+    /**
+     * Waits for LTS that are still executing asynchronously, and fails if any of them did. Called from the visiting
+     * thread once it stops visiting.
+     */
+    protected void awaitInFlight()
+    {
+    }
+
     public abstract void shutdown() throws InterruptedException;
 }
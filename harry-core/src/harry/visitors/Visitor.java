@@ -24,6 +24,13 @@ public interface Visitor
 {
     void visit();
 
+    /**
+     * Called by the runner from the visiting thread once it stops calling {@link #visit()}, unless the run has failed.
+     * Visitors that draw LTS ahead of time have to visit the ones they did not get to here, and visitors that keep
+     * LTS in flight have to wait for them, so that their failures fail the run.
+     */
+    default void drain() {}
+
     default void shutdown() throws InterruptedException {}
 
     interface VisitorFactory
@@ -338,6 +338,33 @@ public class DataGeneratorsTest
     {
         testInverse(new StringBijection());
         testOrderPreserving(new StringBijection());
+
+        // nibbles too long to be looked up by their packed characters
+        testInverse(new StringBijection(12, 256));
+        testOrderPreserving(new StringBijection(12, 256));
+
+        String[] nibbles = StringBijection.alphabetNibbles(4);
+        for (int i = 0; i < nibbles.length; i++)
+            nibbles[i] = nibbles[i] + '\u00e9';
+        testInverse(new StringBijection(nibbles, 5, 10));
+        testOrderPreserving(new StringBijection(nibbles, 5, 10));
+    }
+
+    @Test
+    public void stringGenCompatibilityTest()
+    {
+        StringBijection gen = new StringBijection();
+        Assert.assertEquals("ZinzDdUuABgDknItABgDknItABgDknItABgDknItABgDknItABgDknItABgDknIt2312919424761106117111",
+                            gen.inflate(0));
+        Assert.assertEquals("ZinzDdUuABgDknItAHXhvJVGGXLRPXVAXCnYepMsygziZHHyAdeXABdioXtliGkk1671971261959320980132208174",
+                            gen.inflate(1234567890123L));
+        Assert.assertEquals(1234567890123L, gen.deflate(gen.inflate(1234567890123L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stringGenBadValueTest()
+    {
+        new StringBijection().deflate("zzzzzzzzzzzzzzzz");
     }
 
     public static <T> void testInverse(Bijections.Bijection<T> gen)
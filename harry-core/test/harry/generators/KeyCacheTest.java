@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.generators;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.ddl.ColumnSpec;
+import harry.ddl.SchemaSpec;
+
+public class KeyCacheTest
+{
+    @Test
+    public void boundedTest()
+    {
+        AtomicInteger inflated = new AtomicInteger();
+        KeyCache cache = new KeyCache(10, (descriptor) -> {
+            inflated.incrementAndGet();
+            return new Object[]{ descriptor, Long.toString(descriptor) };
+        });
+        Assert.assertEquals(16, cache.capacity());
+
+        for (long i = 0; i < 16; i++)
+            Assert.assertArrayEquals(new Object[]{ i, Long.toString(i) }, cache.get(i));
+        for (long i = 0; i < 16; i++)
+            Assert.assertArrayEquals(new Object[]{ i, Long.toString(i) }, cache.get(i));
+
+        Assert.assertEquals(16, inflated.get());
+        Assert.assertEquals(16, cache.hits());
+        Assert.assertEquals(16, cache.misses());
+        Assert.assertEquals(0.5, cache.hitRate(), 0.0001);
+        Assert.assertEquals(16, cache.size());
+        long estimatedBytes = cache.estimatedBytes();
+        Assert.assertTrue(estimatedBytes > 0);
+
+        // keys mapping to occupied slots replace the cached ones, without growing the cache
+        for (long i = 1000; i < 2000; i++)
+            cache.get(i);
+        Assert.assertEquals(16, cache.size());
+        Assert.assertTrue(cache.evictions() > 0);
+        Assert.assertTrue(cache.estimatedBytes() < estimatedBytes * 2);
+    }
+
+    @Test
+    public void disabledTest()
+    {
+        AtomicInteger inflated = new AtomicInteger();
+        KeyCache cache = new KeyCache(0, (descriptor) -> {
+            inflated.incrementAndGet();
+            return new Object[]{ descriptor };
+        });
+
+        for (int i = 0; i < 2; i++)
+            Assert.assertArrayEquals(new Object[]{ 1L }, cache.get(1));
+        Assert.assertEquals(2, inflated.get());
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.estimatedBytes());
+    }
+
+    @Test
+    public void schemaKeysTest()
+    {
+        SchemaSpec schema = new SchemaSpec("ks", "tbl1",
+                                           Arrays.asList(ColumnSpec.pk("pk1", ColumnSpec.asciiType),
+                                                         ColumnSpec.pk("pk2", ColumnSpec.int64Type)),
+                                           Arrays.asList(ColumnSpec.ck("ck1", ColumnSpec.asciiType, false),
+                                                         ColumnSpec.ck("ck2", ColumnSpec.int64Type, false)),
+                                           Arrays.asList(ColumnSpec.regularColumn("v1", ColumnSpec.int32Type)),
+                                           Arrays.asList());
+
+        Random rnd = new Random(1);
+        long[] descriptors = new long[100];
+        for (int i = 0; i < descriptors.length; i++)
+            descriptors[i] = rnd.nextLong();
+
+        for (int repeat = 0; repeat < 10; repeat++)
+        {
+            for (long descriptor : descriptors)
+            {
+                long pd = schema.adjustPdEntropy(descriptor);
+                long cd = schema.adjustCdEntropy(descriptor);
+                Assert.assertArrayEquals(schema.pkGenerator.inflate(pd), schema.inflatePartitionKey(pd));
+                Assert.assertArrayEquals(schema.ckGenerator.inflate(cd), schema.inflateClusteringKey(cd));
+                Assert.assertEquals(pd, schema.deflatePartitionKey(schema.inflatePartitionKey(pd)));
+                Assert.assertEquals(cd, schema.deflateClusteringKey(schema.inflateClusteringKey(cd)));
+            }
+        }
+
+        Assert.assertTrue(schema.partitionKeyCache().hitRate() > 0.5);
+        Assert.assertTrue(schema.clusteringKeyCache().hitRate() > 0.5);
+    }
+}
@@ -127,6 +127,27 @@ public class RandomGeneratorTest
         Assert.assertEquals(-10, rand.distance(first));
     }
 
+    @Test
+    public void jumpTableTest()
+    {
+        Random rnd = new Random();
+        for (int i = 0; i < RUNS; i++)
+        {
+            long state = rnd.nextLong();
+            long stream = rnd.nextLong();
+            long steps = i % 2 == 0 ? rnd.nextLong() : rnd.nextInt(1024) - 512;
+
+            long advanced = PCGFastPure.advanceState(state, steps, stream);
+            Assert.assertEquals(PCGFastPure.advanceStateIterative(state, steps, stream), advanced);
+            Assert.assertEquals(steps, PCGFastPure.distance(state, advanced, stream));
+            Assert.assertEquals(PCGFastPure.distanceIterative(state, advanced, stream),
+                                PCGFastPure.distance(state, advanced, stream));
+            Assert.assertEquals(PCGFastPure.advanceStateIterative(state, -1, stream),
+                                PCGFastPure.previousState(state, stream));
+            Assert.assertEquals(state, PCGFastPure.previous(PCGFastPure.next(state, stream), stream));
+        }
+    }
+
     @Test
     public void shuffleUnshuffleTest()
     {
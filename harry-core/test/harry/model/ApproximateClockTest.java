@@ -18,11 +18,14 @@
 
 package harry.model;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -36,6 +39,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import harry.model.clock.ApproximateMonotonicClock;
+import harry.model.clock.LtsLease;
 
 public class ApproximateClockTest
 {
@@ -179,4 +183,49 @@ public class ApproximateClockTest
         }
     }
 
+    @Test
+    public void leasedLtsTest() throws Throwable
+    {
+        TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+        int duration = 10;
+        int concurrency = 8;
+        int leaseSize = 64;
+        ApproximateMonotonicClock clock = new ApproximateMonotonicClock(duration, timeUnit);
+        ConcurrentHashMap<Long, Long> m = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+        long deadline = System.nanoTime() + timeUnit.toNanos(20 * duration);
+        for (int i = 0; i < concurrency; i++)
+        {
+            futures.add(executor.submit(() -> {
+                LtsLease lease = new LtsLease(clock, leaseSize);
+                // Keep drawing across several rebases, and use up the whole lease in the end
+                while (System.nanoTime() < deadline || lease.remaining() > 0)
+                {
+                    long lts = lease.getAsLong();
+                    Assert.assertNull(m.put(lts, clock.rts(lts)));
+                    if (lts % 100 == 0)
+                        LockSupport.parkNanos(timeUnit.toNanos(1));
+                }
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Leases are consecutive, so once all of them are used up, there are no gaps
+        Assert.assertEquals(clock.peek(), m.size());
+        long previousRts = Long.MIN_VALUE;
+        for (long lts = 0; lts < m.size(); lts++)
+        {
+            long rts = m.get(lts);
+            Assert.assertTrue(String.format("RTS of %d is not larger than RTS of the previous LTS", lts), rts > previousRts);
+            Assert.assertEquals(rts, clock.rts(lts));
+            Assert.assertEquals(lts, clock.lts(rts));
+            previousRts = rts;
+        }
+    }
 }
@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 
@@ -99,6 +100,102 @@ public class OpSelectorsTest
         }
     }
 
+    @Test
+    public void descriptorsIntoBufferTest()
+    {
+        OpSelectors.Rng rng = new OpSelectors.PCGFast(1);
+        SchemaSpec schema = new SchemaSpec("ks", "tbl1",
+                                           Arrays.asList(ColumnSpec.pk("pk1", ColumnSpec.asciiType)),
+                                           Arrays.asList(ColumnSpec.ck("ck1", ColumnSpec.asciiType, false)),
+                                           Arrays.asList(ColumnSpec.regularColumn("v1", ColumnSpec.int32Type),
+                                                         ColumnSpec.regularColumn("v2", ColumnSpec.int64Type),
+                                                         ColumnSpec.regularColumn("v3", ColumnSpec.asciiType)),
+                                           Arrays.asList(ColumnSpec.staticColumn("static1", ColumnSpec.asciiType),
+                                                         ColumnSpec.staticColumn("static2", ColumnSpec.int64Type)));
+        OpSelectors.DefaultDescriptorSelector bits = new OpSelectors.DefaultDescriptorSelector(rng,
+                                                                                               new OpSelectors.ColumnSelectorBuilder().forAll(schema).build(),
+                                                                                               OpSelectors.DefaultDescriptorSelector.DEFAULT_OP_SELECTOR,
+                                                                                               new Distribution.ScaledDistribution(1, 3),
+                                                                                               new Distribution.ScaledDistribution(2, 10),
+                                                                                               50);
+        OpSelectors.DefaultDescriptorSelector bitSets = new OpSelectors.DefaultDescriptorSelector(rng,
+                                                                                                  new OpSelectors.ColumnSelectorBuilder().forAll(schema, BitSet.surjection(schema.allColumns.size())).build(),
+                                                                                                  OpSelectors.DefaultDescriptorSelector.DEFAULT_OP_SELECTOR,
+                                                                                                  new Distribution.ScaledDistribution(1, 3),
+                                                                                                  new Distribution.ScaledDistribution(2, 10),
+                                                                                                  50);
+
+        long[] vds = new long[schema.regularColumns.size()];
+        long[] sds = new long[schema.staticColumns.size()];
+        for (int lts = 0; lts < RUNS / 10; lts++)
+        {
+            long pd = rng.randomNumber(lts, 1);
+            int ops = bits.opsPerModification(lts) * bits.numberOfModifications(lts);
+            for (int opId = 0; opId < ops; opId++)
+            {
+                long cd = bits.cd(pd, lts, opId);
+                for (OpSelectors.OperationKind kind : OpSelectors.OperationKind.values())
+                {
+                    BitSet mask = bitSets.columnMask(pd, lts, opId, kind);
+                    Assert.assertEquals(mask.toLong(), bits.columnMask(pd, lts, opId, kind).toLong());
+                    Assert.assertEquals(mask.toLong(), bits.columnMaskBits(pd, lts, opId, kind));
+
+                    bits.vds(pd, cd, lts, opId, kind, schema, vds);
+                    bits.sds(pd, cd, lts, opId, kind, schema, sds);
+                    Assert.assertArrayEquals(bitSets.vds(pd, cd, lts, opId, kind, schema), vds);
+                    Assert.assertArrayEquals(bitSets.sds(pd, cd, lts, opId, kind, schema), sds);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bulkOperationsTest()
+    {
+        OpSelectors.Rng rng = new OpSelectors.PCGFast(1);
+        SchemaSpec schema = new SchemaSpec("ks", "tbl1",
+                                           Arrays.asList(ColumnSpec.pk("pk1", ColumnSpec.asciiType)),
+                                           Arrays.asList(ColumnSpec.ck("ck1", ColumnSpec.asciiType, false),
+                                                         ColumnSpec.ck("ck2", ColumnSpec.int64Type, false)),
+                                           Arrays.asList(ColumnSpec.regularColumn("v1", ColumnSpec.int32Type),
+                                                         ColumnSpec.regularColumn("v2", ColumnSpec.int64Type)),
+                                           Arrays.asList(ColumnSpec.staticColumn("static1", ColumnSpec.asciiType)));
+        OpSelectors.DescriptorSelector[] selectors = new OpSelectors.DescriptorSelector[]{
+        new OpSelectors.DefaultDescriptorSelector(rng,
+                                                  new OpSelectors.ColumnSelectorBuilder().forAll(schema).build(),
+                                                  OpSelectors.DefaultDescriptorSelector.DEFAULT_OP_SELECTOR,
+                                                  new Distribution.ScaledDistribution(1, 3),
+                                                  new Distribution.ScaledDistribution(2, 10),
+                                                  50),
+        new OpSelectors.HierarchicalDescriptorSelector(rng,
+                                                       new int[] {10, 20},
+                                                       new OpSelectors.ColumnSelectorBuilder().forAll(schema).build(),
+                                                       OpSelectors.DefaultDescriptorSelector.DEFAULT_OP_SELECTOR,
+                                                       new Distribution.ScaledDistribution(1, 3),
+                                                       new Distribution.ScaledDistribution(2, 10),
+                                                       50)
+        };
+
+        long[] cds = new long[30];
+        long[] masks = new long[30];
+        OpSelectors.OperationKind[] opTypes = new OpSelectors.OperationKind[30];
+        for (OpSelectors.DescriptorSelector selector : selectors)
+        {
+            for (int lts = 0; lts < RUNS / 10; lts++)
+            {
+                long pd = rng.randomNumber(lts, 1);
+                int ops = selector.operations(pd, lts, schema, cds, opTypes, masks);
+                Assert.assertEquals(selector.opsPerModification(lts) * selector.numberOfModifications(lts), ops);
+                for (int opId = 0; opId < ops; opId++)
+                {
+                    Assert.assertEquals(selector.cd(pd, lts, opId, schema), cds[opId]);
+                    Assert.assertEquals(selector.operationType(pd, lts, opId), opTypes[opId]);
+                    Assert.assertEquals(selector.columnMaskBits(pd, lts, opId, opTypes[opId]), masks[opId]);
+                }
+            }
+        }
+    }
+
     @Test
     public void pdSelectorTest()
     {
@@ -170,6 +267,47 @@ public class OpSelectorsTest
         }
     }
 
+    @Test
+    public void pdSelectorIndexTest() throws Throwable
+    {
+        OpSelectors.Rng rng = new OpSelectors.PCGFast(1);
+        OpSelectors.DefaultPdSelector expected = new OpSelectors.DefaultPdSelector(rng, 10, 20);
+        // Capacity is far smaller than the number of positions, so that entries are evicted while threads race
+        OpSelectors.DefaultPdSelector indexed = new OpSelectors.DefaultPdSelector(rng, 10, 20, 16);
+        int cycles = 100_000;
+
+        Thread[] threads = new Thread[4];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads.length; t++)
+        {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                try
+                {
+                    for (long lts = offset; lts < cycles; lts += 3)
+                    {
+                        long pd = indexed.pd(lts);
+                        Assert.assertEquals(expected.pd(lts), pd);
+                        Assert.assertEquals(expected.positionFor(lts), indexed.positionForPd(pd));
+                        Assert.assertEquals(expected.minLtsFor(pd), indexed.minLtsFor(pd));
+                        Assert.assertEquals(expected.maxLtsFor(pd), indexed.maxLtsFor(pd));
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failure.set(e);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
     @Test
     public void ckSelectorTest()
     {
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.model;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.data.ResultSetRow;
+
+public class QuiescentCheckerTest
+{
+    @Test
+    public void testStreamedRowsAreNotRetained()
+    {
+        List<WeakReference<ResultSetRow>> refs = new ArrayList<>();
+        Iterator<ResultSetRow> rows = new Iterator<ResultSetRow>()
+        {
+            long cd = 0;
+
+            public boolean hasNext()
+            {
+                return cd < 100;
+            }
+
+            public ResultSetRow next()
+            {
+                ResultSetRow row = new ResultSetRow(1, cd++, null, null, new long[1024], new long[1024]);
+                refs.add(new WeakReference<>(row));
+                return row;
+            }
+        };
+
+        QuiescentChecker.StreamedRows streamed = new QuiescentChecker.StreamedRows(rows);
+        for (int i = 0; i < 50; i++)
+            streamed.next();
+
+        for (int i = 0; i < 10 && refs.get(0).get() != null; i++)
+            System.gc();
+
+        for (int i = 0; i < 49; i++)
+            Assert.assertNull("Row " + i + " should not be reachable once consumed", refs.get(i).get());
+
+        // Only the last consumed row is kept for the report, followed by the rest of the result
+        List<ResultSetRow> remaining = streamed.remaining();
+        Assert.assertEquals(51, remaining.size());
+        Assert.assertEquals(49, remaining.get(0).cd);
+        Assert.assertEquals(99, remaining.get(50).cd);
+        Assert.assertSame(remaining, streamed.remaining());
+    }
+}
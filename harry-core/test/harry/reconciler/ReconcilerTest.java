@@ -0,0 +1,122 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.reconciler;
+
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.core.Configuration;
+import harry.core.Run;
+import harry.ddl.SchemaGenerators;
+import harry.ddl.SchemaSpec;
+import harry.model.OpSelectors;
+import harry.model.clock.OffsetClock;
+import harry.model.sut.SystemUnderTest;
+import harry.operations.Query;
+import harry.operations.QueryGenerator;
+
+public class ReconcilerTest
+{
+    private static final long MAX_LTS = 500;
+
+    @Test
+    public void testCachedInflation()
+    {
+        Supplier<SchemaSpec> gen = SchemaGenerators.progression(SchemaGenerators.DEFAULT_SWITCH_AFTER);
+        for (int i = 0; i < SchemaGenerators.DEFAULT_RUNS; i++)
+            testCachedInflation(gen.get());
+    }
+
+    private void testCachedInflation(SchemaSpec schema)
+    {
+        Run run = run(schema);
+        Reconciler reference = new Reconciler(run, 0, Reconciler.PartitionStateKind.TREE_MAP);
+        // Small cache size to exercise eviction
+        Reconciler[] reconcilers = new Reconciler[] { new Reconciler(run, 4, Reconciler.PartitionStateKind.TREE_MAP),
+                                                      new Reconciler(run, 0, Reconciler.PartitionStateKind.COLUMNAR),
+                                                      new Reconciler(run, 4, Reconciler.PartitionStateKind.COLUMNAR) };
+        QueryGenerator.TypedQueryGenerator queryGenerator = new QueryGenerator.TypedQueryGenerator(run);
+
+        // Growing max lts extends cached states
+        for (long maxLts = 0; maxLts < MAX_LTS; maxLts += 50)
+            compare(run, reference, reconcilers, queryGenerator, maxLts);
+
+        // Shrinking max lts can not reuse cached states
+        for (long maxLts = MAX_LTS; maxLts >= 0; maxLts -= 75)
+            compare(run, reference, reconcilers, queryGenerator, maxLts);
+    }
+
+    private static void compare(Run run, Reconciler reference, Reconciler[] reconcilers, QueryGenerator.TypedQueryGenerator queryGenerator, long maxLts)
+    {
+        for (long lts = 0; lts <= maxLts; lts += 25)
+        {
+            for (int modifier = 0; modifier < 2; modifier++)
+            {
+                Query query = queryGenerator.inflate(lts, modifier);
+                String expected = toString(run, reference.inflatePartitionState(query.pd, maxLts, query), query.reverse);
+                for (Reconciler reconciler : reconcilers)
+                    Assert.assertEquals(expected, toString(run, reconciler.inflatePartitionState(query.pd, maxLts, query), query.reverse));
+            }
+        }
+    }
+
+    private static String toString(Run run, Reconciler.PartitionState state, boolean reverse)
+    {
+        StringBuilder sb = new StringBuilder();
+        if (state.staticRow() != null)
+            sb.append(state.staticRow().toString(run.schemaSpec)).append("\n");
+        for (Reconciler.RowState row : state.rows(reverse))
+            sb.append(row.toString(run.schemaSpec)).append(" live=").append(row.hasPrimaryKeyLivenessInfo).append("\n");
+        return sb.toString();
+    }
+
+    private static Run run(SchemaSpec schema)
+    {
+        Configuration.WeightedSelectorBuilder<OpSelectors.OperationKind> weights = new Configuration.OperationKindSelectorBuilder();
+        weights.addWeight(OpSelectors.OperationKind.DELETE_ROW, 1)
+               .addWeight(OpSelectors.OperationKind.DELETE_COLUMN, 1)
+               .addWeight(OpSelectors.OperationKind.DELETE_RANGE, 1)
+               .addWeight(OpSelectors.OperationKind.DELETE_SLICE, 1)
+               .addWeight(OpSelectors.OperationKind.DELETE_PARTITION, 1)
+               .addWeight(OpSelectors.OperationKind.INSERT, 50)
+               .addWeight(OpSelectors.OperationKind.UPDATE, 50);
+        if (!schema.staticColumns.isEmpty())
+        {
+            weights.addWeight(OpSelectors.OperationKind.INSERT_WITH_STATICS, 20)
+                   .addWeight(OpSelectors.OperationKind.UPDATE_WITH_STATICS, 20)
+                   .addWeight(OpSelectors.OperationKind.DELETE_COLUMN_WITH_STATICS, 1);
+        }
+
+        return new Configuration.ConfigurationBuilder()
+               .setSeed(1L)
+               .setSchemaProvider((seed, sut) -> schema)
+               .setClock(() -> new OffsetClock(100000))
+               .setSUT(() -> SystemUnderTest.NO_OP)
+               .setClusteringDescriptorSelector((builder) -> {
+                   builder.setNumberOfModificationsDistribution(new Configuration.ConstantDistributionConfig(2))
+                          .setRowsPerModificationDistribution(new Configuration.ConstantDistributionConfig(2))
+                          .setMaxPartitionSize(20)
+                          .setOperationKindWeights(weights.build());
+               })
+               .build()
+               .createRun();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LockFreeDataTrackerTest
+{
+    @Test
+    public void testOutOfOrderCompletion()
+    {
+        LockFreeDataTracker tracker = new LockFreeDataTracker(128);
+        List<Long> ltss = new ArrayList<>();
+        for (long i = 0; i < 100; i++)
+            ltss.add(i);
+        Collections.shuffle(ltss);
+
+        long expected = -1;
+        boolean[] finished = new boolean[100];
+        for (long lts : ltss)
+        {
+            tracker.started(lts);
+            tracker.finished(lts);
+            finished[(int) lts] = true;
+            while (expected + 1 < finished.length && finished[(int) expected + 1])
+                expected++;
+            Assert.assertEquals(expected, tracker.maxConsecutiveFinished());
+        }
+        Assert.assertEquals(99, tracker.maxStarted());
+    }
+
+    @Test
+    public void testReorderBufferSize()
+    {
+        LockFreeDataTracker tracker = new LockFreeDataTracker(128);
+        for (long lts = 1; lts <= 10; lts++)
+        {
+            tracker.started(lts);
+            tracker.finished(lts);
+        }
+        Assert.assertEquals(10, tracker.reorderBufferSize());
+
+        tracker.started(0);
+        tracker.finished(0);
+        Assert.assertEquals(10, tracker.maxConsecutiveFinished());
+        Assert.assertEquals(0, tracker.reorderBufferSize());
+    }
+
+    @Test
+    public void testFinishBeyondWindow()
+    {
+        LockFreeDataTracker tracker = new LockFreeDataTracker(64);
+        // Should not wait for the window, even though nothing before it has finished
+        for (long lts = 100; lts < 300; lts++)
+        {
+            tracker.started(lts);
+            tracker.finished(lts);
+        }
+        Assert.assertEquals(-1, tracker.maxConsecutiveFinished());
+        Assert.assertEquals(200, tracker.reorderBufferSize());
+
+        List<Long> ltss = new ArrayList<>();
+        for (long i = 0; i < 100; i++)
+            ltss.add(i);
+        Collections.shuffle(ltss);
+        for (long lts : ltss)
+        {
+            tracker.started(lts);
+            tracker.finished(lts);
+        }
+        Assert.assertEquals(299, tracker.maxConsecutiveFinished());
+        Assert.assertEquals(0, tracker.reorderBufferSize());
+    }
+
+    @Test
+    public void testConcurrentCompletion() throws Throwable
+    {
+        int threads = 16;
+        long perThread = 100_000;
+        // Small window to make sure that writers wrap around and overflow it
+        LockFreeDataTracker tracker = new LockFreeDataTracker(256);
+        AtomicLong lts = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < perThread; j++)
+                {
+                    long next = lts.getAndIncrement();
+                    tracker.started(next);
+                    tracker.finished(next);
+                    Assert.assertTrue(tracker.maxConsecutiveFinished() <= tracker.maxStarted());
+                }
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        Assert.assertEquals(threads * perThread - 1, tracker.maxStarted());
+        Assert.assertEquals(threads * perThread - 1, tracker.maxConsecutiveFinished());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.runner;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RateLimitedRunnerTest
+{
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testRampUpAndSteps()
+    {
+        RateLimitedRunner.RateProfile profile = new RateLimitedRunner.RateProfile(100, 10 * SECOND,
+                                                                                  Arrays.asList(new RateLimitedRunner.RateProfile.Step(200, 5 * SECOND),
+                                                                                                new RateLimitedRunner.RateProfile.Step(300, 5 * SECOND)));
+        Assert.assertEquals(1, profile.rate(0), 0.001);
+        Assert.assertEquals(50, profile.rate(5 * SECOND), 0.001);
+        Assert.assertEquals(200, profile.rate(10 * SECOND), 0.001);
+        Assert.assertEquals(200, profile.rate(15 * SECOND - 1), 0.001);
+        Assert.assertEquals(300, profile.rate(15 * SECOND), 0.001);
+        // Last step is kept until the end of the run
+        Assert.assertEquals(300, profile.rate(100 * SECOND), 0.001);
+
+        Assert.assertEquals(100, RateLimitedRunner.RateProfile.constant(100).rate(100 * SECOND), 0.001);
+    }
+
+    @Test
+    public void testPacerSchedule()
+    {
+        RateLimitedRunner.Pacer pacer = new RateLimitedRunner.Pacer(RateLimitedRunner.RateProfile.constant(1000), 0);
+        // Schedule only depends on the rate, not on when visits are requested
+        for (int i = 0; i < 1000; i++)
+            Assert.assertEquals(i * TimeUnit.MILLISECONDS.toNanos(1), pacer.next());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void bucketBoundsTest()
+    {
+        long[] values = new long[]{ 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE };
+        for (long value : values)
+        {
+            int bucket = LatencyHistogram.bucket(value);
+            Assert.assertTrue(LatencyHistogram.highestEquivalentValue(bucket) >= value);
+            if (bucket > 0)
+                Assert.assertTrue(LatencyHistogram.highestEquivalentValue(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void quantilesTest()
+    {
+        Random rnd = new Random(1);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = (long) Math.abs(rnd.nextGaussian() * 1_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(values.length, snapshot.count());
+        for (double q : new double[]{ 0.5, 0.9, 0.99, 0.999 })
+        {
+            long expected = values[(int) Math.ceil(q * values.length) - 1];
+            long actual = snapshot.quantile(q);
+            Assert.assertTrue(String.format("%d < %d at %f", actual, expected, q), actual >= expected);
+            Assert.assertTrue(String.format("%d is more than 1/32 larger than %d at %f", actual, expected, q), actual <= expected + expected / 32);
+        }
+    }
+
+    @Test
+    public void intervalTest()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++)
+            histogram.record(10);
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        for (int i = 0; i < 50; i++)
+            histogram.record(1000);
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(first);
+
+        Assert.assertEquals(50, interval.count());
+        Assert.assertTrue(interval.quantile(0.01) >= 1000);
+        Assert.assertEquals(0, LatencyHistogram.Snapshot.empty().quantile(0.5));
+    }
+}
@@ -83,6 +83,47 @@ public class RangesTest
         }
     }
 
+    @Test
+    public void shadowedByTest()
+    {
+        Random rnd = new Random();
+        for (int i = 0; i < 1000; i++)
+        {
+            // Narrow domain to get plenty of coinciding bounds
+            List<Ranges.Range> rangesList = new ArrayList<>();
+            int count = rnd.nextInt(50);
+            for (int j = 0; j < count; j++)
+            {
+                long a = rnd.nextInt(50);
+                long b = rnd.nextInt(50);
+                boolean minInclusive = rnd.nextBoolean();
+                boolean maxInclusive = a == b || rnd.nextBoolean();
+                rangesList.add(new Ranges.Range(Math.min(a, b),
+                                                Math.max(a, b),
+                                                a == b || minInclusive,
+                                                maxInclusive,
+                                                rnd.nextInt(100)));
+            }
+            Ranges ranges = new Ranges(rangesList);
+
+            for (long descriptor = -1; descriptor <= 51; descriptor++)
+            {
+                long ts = rnd.nextInt(100);
+                List<Ranges.Range> expected = new ArrayList<>();
+                for (Ranges.Range range : rangesList)
+                {
+                    if (range.contains(descriptor, ts))
+                        expected.add(range);
+                }
+
+                List<Ranges.Range> actual = ranges.shadowedBy(descriptor, ts);
+                Assert.assertEquals(expected.size(), actual.size());
+                Assert.assertTrue(actual.containsAll(expected));
+                Assert.assertEquals(!expected.isEmpty(), ranges.isShadowed(descriptor, ts));
+            }
+        }
+    }
+
     public boolean matchLinear(List<Ranges.Range> ranges, long descriptor, long ts)
     {
         for (Ranges.Range range : ranges)
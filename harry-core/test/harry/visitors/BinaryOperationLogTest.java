@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.model.OpSelectors;
+
+public class BinaryOperationLogTest
+{
+    @Test
+    public void testConcurrentAppends() throws Throwable
+    {
+        File file = File.createTempFile("operation", ".bin");
+        file.deleteOnExit();
+
+        int threads = 4;
+        int records = 10_000;
+        OpSelectors.OperationKind[] kinds = OpSelectors.OperationKind.values();
+        // Small ring, so that producers wrap around and wait for the writer
+        BinaryOperationLog log = new BinaryOperationLog(file, 64);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            long lts = t;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < records; i++)
+                    log.operation(lts, i, i * 2L, i % 3, i, kinds[i % kinds.length]);
+                log.finished(lts, records);
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        for (Thread producer : producers)
+            producer.join();
+        log.close();
+
+        Assert.assertEquals(BinaryOperationLog.HEADER_SIZE + (long) threads * (records + 1) * BinaryOperationLog.RECORD_SIZE,
+                            file.length());
+
+        long[] seen = new long[threads];
+        boolean[] finished = new boolean[threads];
+        BinaryOperationLog.Record record = new BinaryOperationLog.Record();
+        try (BinaryOperationLog.Reader reader = new BinaryOperationLog.Reader(file))
+        {
+            while (reader.next(record))
+            {
+                int t = (int) record.lts;
+                Assert.assertFalse(finished[t]);
+                if (record.isFinished())
+                {
+                    Assert.assertEquals(records, seen[t]);
+                    finished[t] = true;
+                    continue;
+                }
+
+                // Records of a single thread keep their order
+                Assert.assertEquals(seen[t], record.pd);
+                Assert.assertEquals(record.pd * 2, record.cd);
+                Assert.assertEquals(record.pd % 3, record.m);
+                Assert.assertEquals(record.pd, record.opId);
+                Assert.assertEquals(kinds[(int) (record.pd % kinds.length)], record.operationKind());
+                seen[t]++;
+            }
+        }
+
+        for (boolean f : finished)
+            Assert.assertTrue(f);
+    }
+
+    @Test
+    public void testSeek() throws Throwable
+    {
+        File file = File.createTempFile("operation", ".bin");
+        file.deleteOnExit();
+
+        BinaryOperationLog log = new BinaryOperationLog(file, 1024);
+        for (int i = 0; i < 100; i++)
+            log.operation(i, i, i, 0, 0, OpSelectors.OperationKind.INSERT);
+        log.close();
+
+        BinaryOperationLog.Record record = new BinaryOperationLog.Record();
+        try (BinaryOperationLog.Reader reader = new BinaryOperationLog.Reader(file))
+        {
+            reader.seek(42);
+            Assert.assertTrue(reader.next(record));
+            Assert.assertEquals(42, record.lts);
+            reader.seek(99);
+            Assert.assertTrue(reader.next(record));
+            Assert.assertEquals(99, record.lts);
+            Assert.assertFalse(reader.next(record));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.core.Configuration;
+import harry.core.Run;
+import harry.ddl.SchemaGenerators;
+import harry.model.clock.OffsetClock;
+import harry.model.sut.StatementCache;
+import harry.model.sut.SystemUnderTest;
+import harry.operations.CompiledStatement;
+
+public class MutatingVisitorTest
+{
+    private static final int MODIFICATIONS = 2;
+
+    @Test
+    public void testPipelinedExecution() throws Throwable
+    {
+        int maxInFlightLts = 8;
+        DelayingSut sut = new DelayingSut();
+        Run run = new Configuration.ConfigurationBuilder()
+                  .setSeed(1L)
+                  .setSchemaProvider((seed, ignore) -> SchemaGenerators.defaultSchemaSpecGen("harry", "table0").inflate(seed))
+                  .setClock(() -> new OffsetClock(100000))
+                  .setSUT(() -> sut)
+                  .setDataTracker(new Configuration.LockFreeDataTrackerConfiguration())
+                  .setClusteringDescriptorSelector(builder -> builder.setNumberOfModificationsDistribution(new Configuration.ConstantDistributionConfig(MODIFICATIONS)))
+                  .build()
+                  .createRun();
+
+        MutatingVisitor visitor = new MutatingVisitor(run, MutatingRowVisitor::new, maxInFlightLts);
+        for (int i = 0; i < 200; i++)
+            visitor.visit();
+        visitor.shutdown();
+        sut.shutdown();
+
+        Assert.assertEquals(199, run.tracker.maxStarted());
+        Assert.assertEquals(199, run.tracker.maxConsecutiveFinished());
+        Assert.assertTrue(String.format("Expected more than a single batch in flight, but was %d", sut.maxInFlight.get()),
+                          sut.maxInFlight.get() > 1);
+        Assert.assertTrue(String.format("Expected at most %d batches in flight, but was %d", maxInFlightLts * MODIFICATIONS, sut.maxInFlight.get()),
+                          sut.maxInFlight.get() <= maxInFlightLts * MODIFICATIONS);
+        // Statement shapes repeat, since values and timestamps are bound
+        Assert.assertTrue(sut.statementCache.toString(), sut.statementCache.hitRate() > 0.9);
+    }
+
+    @Test
+    public void testLeasedLtsAreDrained() throws Throwable
+    {
+        int threads = 8;
+        int ltsLeaseSize = 16;
+        // Not a multiple of the lease size, so every visitor stops with LTS left in its lease
+        int visitsPerThread = 101;
+        DelayingSut sut = new DelayingSut();
+        Run run = new Configuration.ConfigurationBuilder()
+                  .setSeed(1L)
+                  .setSchemaProvider((seed, ignore) -> SchemaGenerators.defaultSchemaSpecGen("harry", "table0").inflate(seed))
+                  .setClock(() -> new OffsetClock(100000))
+                  .setSUT(() -> sut)
+                  .setDataTracker(new Configuration.LockFreeDataTrackerConfiguration())
+                  .setClusteringDescriptorSelector(builder -> builder.setNumberOfModificationsDistribution(new Configuration.ConstantDistributionConfig(MODIFICATIONS)))
+                  .build()
+                  .createRun();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            futures.add(executor.submit(() -> {
+                MutatingVisitor visitor = new MutatingVisitor(run, MutatingRowVisitor::new, 4, ltsLeaseSize);
+                for (int j = 0; j < visitsPerThread; j++)
+                    visitor.visit();
+                visitor.drain();
+                visitor.shutdown();
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+        sut.shutdown();
+
+        int leasesPerThread = (visitsPerThread + ltsLeaseSize - 1) / ltsLeaseSize;
+        Assert.assertEquals(threads * leasesPerThread * ltsLeaseSize - 1, run.tracker.maxStarted());
+        Assert.assertEquals(run.tracker.maxStarted(), run.tracker.maxConsecutiveFinished());
+    }
+
+    @Test
+    public void testFailedLastInFlightLtsIsReported() throws Throwable
+    {
+        int visits = 20;
+        DelayingSut sut = new DelayingSut();
+        Run run = new Configuration.ConfigurationBuilder()
+                  .setSeed(1L)
+                  .setSchemaProvider((seed, ignore) -> SchemaGenerators.defaultSchemaSpecGen("harry", "table0").inflate(seed))
+                  .setClock(() -> new OffsetClock(100000))
+                  .setSUT(() -> sut)
+                  .setDataTracker(new Configuration.LockFreeDataTrackerConfiguration())
+                  .setClusteringDescriptorSelector(builder -> builder.setNumberOfModificationsDistribution(new Configuration.ConstantDistributionConfig(MODIFICATIONS)))
+                  .build()
+                  .createRun();
+
+        // Only the last LTS fails, and only after the visitor has stopped visiting
+        MutatingVisitor.MutatingVisitExecutor visitExecutor = new MutatingVisitor.MutatingVisitExecutor(run, new MutatingRowVisitor(run), 8)
+        {
+            protected void executeAsyncWithRetries(long lts, long pd, CompletableFuture<Object[][]> future, CompiledStatement statement)
+            {
+                if (lts == visits - 1)
+                    executor.schedule(() -> future.completeExceptionally(new RuntimeException("Injected failure")), 10, TimeUnit.MILLISECONDS);
+                else
+                    super.executeAsyncWithRetries(lts, pd, future, statement);
+            }
+        };
+        MutatingVisitor visitor = new MutatingVisitor(run, visitExecutor);
+        for (int i = 0; i < visits; i++)
+            visitor.visit();
+
+        try
+        {
+            visitor.drain();
+            Assert.fail("Failure of the last in-flight LTS should have been reported");
+        }
+        catch (IllegalStateException e)
+        {
+            Assert.assertEquals("Injected failure", e.getCause().getCause().getMessage());
+        }
+
+        try
+        {
+            visitor.shutdown();
+            Assert.fail("Failure of the last in-flight LTS should have been reported on shutdown");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        sut.shutdown();
+
+        Assert.assertEquals(visits - 1, run.tracker.maxStarted());
+        Assert.assertEquals(visits - 2, run.tracker.maxConsecutiveFinished());
+    }
+
+    private static class DelayingSut implements SystemUnderTest
+    {
+        private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final StatementCache<String> statementCache = new StatementCache<>(cql -> cql);
+
+        public boolean isShutdown()
+        {
+            return executor.isShutdown();
+        }
+
+        public void shutdown()
+        {
+            executor.shutdown();
+        }
+
+        public Object[][] execute(String statement, ConsistencyLevel cl, Object... bindings)
+        {
+            return new Object[0][];
+        }
+
+        public CompletableFuture<Object[][]> executePreparedAsync(CompiledStatement statement, ConsistencyLevel cl)
+        {
+            if (statement instanceof CompiledStatement.Batch)
+            {
+                for (CompiledStatement s : ((CompiledStatement.Batch) statement).statements)
+                    statementCache.get(s.cql());
+            }
+            else
+            {
+                statementCache.get(statement.cql());
+            }
+            return executeAsync(statement.cql(), cl, statement.bindings());
+        }
+
+        public CompletableFuture<Object[][]> executeAsync(String statement, ConsistencyLevel cl, Object... bindings)
+        {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            CompletableFuture<Object[][]> future = new CompletableFuture<>();
+            executor.schedule(() -> {
+                inFlight.decrementAndGet();
+                future.complete(new Object[0][]);
+            }, ThreadLocalRandom.current().nextInt(1, 5), TimeUnit.MILLISECONDS);
+            return future;
+        }
+    }
+}
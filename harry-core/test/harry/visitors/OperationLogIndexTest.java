@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.model.OpSelectors;
+
+public class OperationLogIndexTest
+{
+    private static final int PARTITIONS = 7;
+    private static final int OPERATIONS = 3;
+
+    @Test
+    public void testLookup() throws Throwable
+    {
+        File file = Files.createTempDirectory("operation-log").resolve("operation.bin").toFile();
+        file.deleteOnExit();
+
+        int maxLts = 2000;
+        write(file, maxLts);
+
+        try (OperationLogIndex index = OperationLogIndex.open(file))
+        {
+            Assert.assertEquals(maxLts, index.size());
+            for (long pd = 0; pd < PARTITIONS; pd++)
+            {
+                List<BinaryOperationLog.Record> history = index.partition(pd);
+                long expectedLts = pd;
+                for (int i = 0; i < history.size(); i += OPERATIONS + 1)
+                {
+                    checkLts(history, i, expectedLts, pd);
+                    expectedLts += PARTITIONS;
+                }
+                Assert.assertTrue(expectedLts >= maxLts);
+            }
+
+            Assert.assertTrue(index.partition(PARTITIONS).isEmpty());
+
+            List<BinaryOperationLog.Record> range = index.lts(100, 199);
+            Assert.assertEquals(100 * (OPERATIONS + 1), range.size());
+            for (int i = 0; i < 100; i++)
+                checkLts(range, i * (OPERATIONS + 1), 100 + i, (100 + i) % PARTITIONS);
+        }
+
+        // Index is re-sorted once the journal changes
+        write(file, 10);
+        try (OperationLogIndex index = OperationLogIndex.open(file))
+        {
+            Assert.assertEquals(10, index.size());
+            Assert.assertEquals(10 * (OPERATIONS + 1), index.lts(0, Long.MAX_VALUE).size());
+        }
+    }
+
+    private static void checkLts(List<BinaryOperationLog.Record> history, int offset, long lts, long pd)
+    {
+        for (int op = 0; op < OPERATIONS; op++)
+        {
+            BinaryOperationLog.Record record = history.get(offset + op);
+            Assert.assertEquals(lts, record.lts);
+            Assert.assertEquals(pd, record.pd);
+            Assert.assertEquals(op, record.opId);
+        }
+        BinaryOperationLog.Record finished = history.get(offset + OPERATIONS);
+        Assert.assertEquals(lts, finished.lts);
+        Assert.assertTrue(finished.isFinished());
+    }
+
+    /**
+     * Writes LTS below {@code maxLts} from several threads, so that their records interleave.
+     */
+    private static void write(File file, int maxLts) throws InterruptedException
+    {
+        BinaryOperationLog log = new BinaryOperationLog(file, 64);
+        AtomicLong clock = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            Thread thread = new Thread(() -> {
+                long lts;
+                while ((lts = clock.getAndIncrement()) < maxLts)
+                {
+                    long pd = lts % PARTITIONS;
+                    for (int op = 0; op < OPERATIONS; op++)
+                        log.operation(lts, pd, op, 0, op, OpSelectors.OperationKind.INSERT);
+                    log.finished(lts, pd);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+        log.close();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.visitors;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import harry.ddl.ColumnSpec;
+import harry.ddl.SchemaSpec;
+import harry.operations.Query;
+
+public class ValidationLogTest
+{
+    @Test
+    public void testConcurrentValidators() throws Throwable
+    {
+        SchemaSpec schema = new SchemaSpec("ks", "tbl1",
+                                           Arrays.asList(ColumnSpec.pk("pk1", ColumnSpec.int64Type)),
+                                           Arrays.asList(ColumnSpec.ck("ck1", ColumnSpec.int64Type, false)),
+                                           Arrays.asList(ColumnSpec.regularColumn("v1", ColumnSpec.int64Type)),
+                                           Arrays.asList());
+        File file = File.createTempFile("validation", ".log");
+        file.deleteOnExit();
+
+        int validators = 4;
+        int queries = 1000;
+        List<ValidationLog> logs = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int v = 0; v < validators; v++)
+        {
+            ValidationLog log = ValidationLog.open(file, "test");
+            logs.add(log);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < queries; i++)
+                    log.log(i, 0, Query.selectPartition(schema, i, false));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+        for (ValidationLog log : logs)
+            log.close();
+
+        // Lines of every validator are intact and in order
+        Map<String, Integer> seen = new HashMap<>();
+        for (String line : Files.readAllLines(file.toPath()))
+        {
+            String tag = line.substring(1, line.indexOf(']'));
+            int expected = seen.getOrDefault(tag, 0);
+            Assert.assertTrue(line, line.startsWith(String.format("[%s] LTS: %d. Modifier: 0. PD: %d\t", tag, expected, expected)));
+            seen.put(tag, expected + 1);
+        }
+
+        Assert.assertEquals(validators, seen.size());
+        for (int count : seen.values())
+            Assert.assertEquals(queries, count);
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        Assert.assertFalse(ValidationLog.open("test", false).isEnabled());
+        // Queries are not rendered when logging is disabled
+        ValidationLog.DISABLED.log(0, 0, null);
+        ValidationLog.DISABLED.close();
+    }
+}
@@ -24,17 +24,27 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import harry.core.Configuration;
+import harry.model.sut.StatementCache;
 import harry.model.sut.SystemUnderTest;
+import harry.operations.CompiledStatement;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class ExternalClusterSut implements SystemUnderTest
 {
+    private static final Logger logger = LoggerFactory.getLogger(ExternalClusterSut.class);
+
     public static void registerSubtypes()
     {
         Configuration.registerSubtypes(ExternalSutConfiguration.class);
@@ -42,6 +52,8 @@ public class ExternalClusterSut implements SystemUnderTest
 
     private final Session session;
     private final ExecutorService executor;
+    // Prepare futures rather than statements, so that preparing, which goes over the network, never blocks callers
+    private final StatementCache<CompletableFuture<PreparedStatement>> statementCache;
 
     public ExternalClusterSut(Session session)
     {
@@ -52,6 +64,7 @@ public class ExternalClusterSut implements SystemUnderTest
     {
         this.session = session;
         this.executor = Executors.newFixedThreadPool(threads);
+        this.statementCache = new StatementCache<>(this::prepareAsync);
     }
 
     public static ExternalClusterSut create(ExternalSutConfiguration config)
@@ -100,13 +113,112 @@ public class ExternalClusterSut implements SystemUnderTest
                 if (repeat < 0)
                     throw t;
 
-                t.printStackTrace();
+                logger.warn("Retrying statement {} after an error", statement, t);
                 repeat--;
                 // retry unconditionally
             }
         }
     }
 
+    public Object[][] executePrepared(String statement, ConsistencyLevel cl, Object... bindings)
+    {
+        int repeat = 10;
+        while (true)
+        {
+            try
+            {
+                return executePreparedAsync(statement, cl, bindings).get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            catch (ExecutionException e)
+            {
+                if (repeat < 0)
+                    throw new RuntimeException(e.getCause());
+
+                logger.warn("Retrying statement {} after an error", statement, e.getCause());
+                repeat--;
+                // retry unconditionally
+            }
+        }
+    }
+
+    /**
+     * Never throws: errors while preparing, binding or executing the statement complete the returned future
+     * exceptionally, so that callers chaining retries on it are always notified.
+     */
+    public CompletableFuture<Object[][]> executePreparedAsync(String statement, ConsistencyLevel cl, Object... bindings)
+    {
+        CompletableFuture<PreparedStatement> prepared = preparedStatement(statement);
+        if (prepared == null)
+            return executeAsync(statement, cl, bindings);
+
+        return prepared.thenCompose(p -> toCompletableFuture(() -> session.executeAsync(p.bind(bindings))));
+    }
+
+    public CompletableFuture<Object[][]> executePreparedAsync(CompiledStatement statement, ConsistencyLevel cl)
+    {
+        if (!(statement instanceof CompiledStatement.Batch))
+            return executePreparedAsync(statement.cql(), cl, statement.bindings());
+
+        // Batch text differs almost every time, but individual statement shapes repeat, so we prepare them separately
+        List<CompiledStatement> statements = ((CompiledStatement.Batch) statement).statements;
+        CompletableFuture<?>[] prepared = new CompletableFuture<?>[statements.size()];
+        for (int i = 0; i < prepared.length; i++)
+        {
+            prepared[i] = preparedStatement(statements.get(i).cql());
+            if (prepared[i] == null)
+                return executeAsync(statement.cql(), cl, statement.bindings());
+        }
+
+        return CompletableFuture.allOf(prepared)
+                                .thenCompose(ignore -> toCompletableFuture(() -> {
+                                    BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                                    for (int i = 0; i < prepared.length; i++)
+                                        batch.add(((PreparedStatement) prepared[i].join()).bind(statements.get(i).bindings()));
+                                    return session.executeAsync(batch);
+                                }));
+    }
+
+    public StatementCache<CompletableFuture<PreparedStatement>> statementCache()
+    {
+        return statementCache;
+    }
+
+    private CompletableFuture<PreparedStatement> preparedStatement(String cql)
+    {
+        CompletableFuture<PreparedStatement> prepared = statementCache.get(cql);
+        // A prepare that failed before its future was cached could not remove it from the cache
+        if (prepared != null && prepared.isCompletedExceptionally())
+            statementCache.invalidate(cql, prepared);
+        return prepared;
+    }
+
+    private CompletableFuture<PreparedStatement> prepareAsync(String cql)
+    {
+        CompletableFuture<PreparedStatement> future = new CompletableFuture<>();
+        try
+        {
+            forward(session.prepareAsync(cql), future);
+        }
+        catch (Throwable t)
+        {
+            future.completeExceptionally(t);
+        }
+
+        // Failed prepares are not cached, so that the statement is prepared again next time
+        future.whenComplete((prepared, t) -> {
+            if (t != null)
+            {
+                logger.warn("Could not prepare statement {}", cql, t);
+                statementCache.invalidate(cql, future);
+            }
+        });
+        return future;
+    }
 
     private static Object[][] resultSetToObjectArray(ResultSet rs)
     {
@@ -131,23 +243,42 @@ public class ExternalClusterSut implements SystemUnderTest
 
     public CompletableFuture<Object[][]> executeAsync(String statement, ConsistencyLevel cl, Object... bindings)
     {
-        CompletableFuture<Object[][]> future = new CompletableFuture<>();
-        Futures.addCallback(session.executeAsync(statement, bindings),
-                            new FutureCallback<ResultSet>()
+        return toCompletableFuture(() -> session.executeAsync(statement, bindings));
+    }
+
+    /**
+     * Errors thrown while submitting the query complete the returned future exceptionally.
+     */
+    private CompletableFuture<Object[][]> toCompletableFuture(Supplier<ResultSetFuture> execute)
+    {
+        CompletableFuture<ResultSet> resultSet = new CompletableFuture<>();
+        try
+        {
+            forward(execute.get(), resultSet);
+        }
+        catch (Throwable t)
+        {
+            resultSet.completeExceptionally(t);
+        }
+        return resultSet.thenApply(ExternalClusterSut::resultSetToObjectArray);
+    }
+
+    private <T> void forward(ListenableFuture<T> from, CompletableFuture<T> to)
+    {
+        Futures.addCallback(from,
+                            new FutureCallback<T>()
                             {
-                                public void onSuccess(ResultSet rows)
+                                public void onSuccess(T result)
                                 {
-                                    future.complete(resultSetToObjectArray(rows));
+                                    to.complete(result);
                                 }
 
                                 public void onFailure(Throwable throwable)
                                 {
-                                    future.completeExceptionally(throwable);
+                                    to.completeExceptionally(throwable);
                                 }
                             },
                             executor);
-
-        return future;
     }
 
     @JsonTypeName("external")
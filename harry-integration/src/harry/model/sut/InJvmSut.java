@@ -21,6 +21,7 @@ package harry.model.sut;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -51,15 +52,28 @@ public class InJvmSut extends InJvmSutBase<IInvokableInstance, Cluster>
         super(cluster, threads);
     }
 
+    public InJvmSut(Cluster cluster, ExecutorService executor, int maxInFlight)
+    {
+        super(cluster, executor, maxInFlight);
+    }
+
+    public InJvmSut(Cluster cluster, ExecutorService executor, int maxInFlight, int pageSize)
+    {
+        super(cluster, executor, maxInFlight, pageSize);
+    }
+
     @JsonTypeName("in_jvm")
     public static class InJvmSutConfiguration extends InJvmSutBaseConfiguration<IInvokableInstance, Cluster>
     {
         @JsonCreator
         public InJvmSutConfiguration(@JsonProperty(value = "nodes", defaultValue = "3") int nodes,
                                      @JsonProperty(value = "worker_threads", defaultValue = "10") int worker_threads,
-                                     @JsonProperty("root") String root)
+                                     @JsonProperty("root") String root,
+                                     @JsonProperty(value = "async_executor", defaultValue = "FIXED") AsyncExecutorKind async_executor,
+                                     @JsonProperty(value = "max_in_flight", defaultValue = "-1") Integer max_in_flight,
+                                     @JsonProperty(value = "page_size", defaultValue = "1") Integer page_size)
         {
-            super(nodes, worker_threads, root);
+            super(nodes, worker_threads, root, async_executor, max_in_flight, page_size);
         }
 
         protected Cluster cluster(Consumer<IInstanceConfig> cfg, int nodes, File root)
@@ -79,7 +93,7 @@ public class InJvmSut extends InJvmSutBase<IInvokableInstance, Cluster>
 
         protected InJvmSutBase<IInvokableInstance, Cluster> sut(Cluster cluster)
         {
-            return new InJvmSut(cluster);
+            return new InJvmSut(cluster, executor(), max_in_flight, page_size);
         }
     }
 
@@ -22,13 +22,16 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +39,8 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import harry.core.Configuration;
+import harry.operations.CompiledStatement;
+import harry.util.VirtualThreads;
 import org.apache.cassandra.distributed.api.Feature;
 import org.apache.cassandra.distributed.api.ICluster;
 import org.apache.cassandra.distributed.api.IInstance;
@@ -55,6 +60,9 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
 
     // TODO: shut down properly
     private final ExecutorService executor;
+    // Bounds the number of outstanding async requests, null if unbounded
+    private final Semaphore inFlight;
+    private final int pageSize;
     public final CLUSTER cluster;
     private final AtomicLong cnt = new AtomicLong();
     private final AtomicBoolean isShutdown = new AtomicBoolean(false);
@@ -66,8 +74,42 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
 
     public InJvmSutBase(CLUSTER cluster, int threads)
     {
+        this(cluster, Executors.newFixedThreadPool(threads), -1);
+    }
+
+    public InJvmSutBase(CLUSTER cluster, ExecutorService executor, int maxInFlight)
+    {
+        this(cluster, executor, maxInFlight, 1);
+    }
+
+    /**
+     * @param maxInFlight maximum number of asynchronous requests that can be outstanding at once; callers of
+     *                    async methods block when the limit is reached. Non-positive value means no limit.
+     * @param pageSize number of rows fetched from the coordinator per round trip when executing SELECT statements.
+     */
+    public InJvmSutBase(CLUSTER cluster, ExecutorService executor, int maxInFlight, int pageSize)
+    {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Page size should be positive, but was " + pageSize);
         this.cluster = cluster;
-        this.executor = Executors.newFixedThreadPool(threads);
+        this.executor = executor;
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * In-JVM coordinator only exposes blocking execution (its async methods go through tracing, and return plain
+     * futures), so the cheapest way to keep many requests outstanding is to block a virtual thread per request.
+     * Falls back to an unbounded cached pool on JVMs without virtual threads.
+     */
+    public static ExecutorService newThreadPerRequestExecutor()
+    {
+        if (!VirtualThreads.isAvailable())
+        {
+            logger.warn("Virtual threads are not available in this JVM, falling back to a cached thread pool");
+            return Executors.newCachedThreadPool();
+        }
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
     }
 
     public CLUSTER cluster()
@@ -107,6 +149,14 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
     }
 
     public Object[][] execute(String statement, ConsistencyLevel cl, int coordinator, Object... bindings)
+    {
+        return execute(statement, statement.contains("SELECT"), cl, coordinator, bindings);
+    }
+
+    // In-JVM coordinator API has no entry point for executing prepared statements, and nodes parse every statement
+    // anyway, so prepared execution falls back to the plain one, and there is no statement cache to report on.
+
+    private Object[][] execute(String statement, boolean isSelect, ConsistencyLevel cl, int coordinator, Object... bindings)
     {
         if (isShutdown.get())
             throw new RuntimeException("Instance is shut down");
@@ -118,12 +168,12 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
                 return cluster.get(coordinator)
                               .executeInternal(statement, bindings);
             }
-            else if (statement.contains("SELECT"))
+            else if (isSelect)
             {
                 return Iterators.toArray(cluster
                                          // round-robin
                                          .coordinator(coordinator)
-                                         .executeWithPaging(statement, toApiCl(cl), 1, bindings),
+                                         .executeWithPaging(statement, toApiCl(cl), pageSize, bindings),
                                          Object[].class);
             }
             else
@@ -138,7 +188,7 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
         {
             // TODO: find a better way to work around timeouts
             if (t.getMessage().contains("timed out"))
-                return execute(statement, cl, coordinator, bindings);
+                return execute(statement, isSelect, cl, coordinator, bindings);
 
             logger.error(String.format("Caught error while trying execute statement %s (%s): %s",
                                        statement, Arrays.toString(bindings), t.getMessage()),
@@ -147,6 +197,23 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
         }
     }
 
+    /**
+     * Returns the coordinator's paging iterator as is, so rows are fetched {@code pageSize} at a time as the
+     * iterator is consumed. Unlike {@link #execute}, timeouts that occur while paging are not retried.
+     */
+    public Iterator<Object[]> executeStreaming(CompiledStatement statement, ConsistencyLevel cl)
+    {
+        if (!statement.cql().contains("SELECT") || cl == ConsistencyLevel.NODE_LOCAL)
+            return Iterators.forArray(executePrepared(statement, cl));
+
+        if (isShutdown.get())
+            throw new RuntimeException("Instance is shut down");
+
+        int coordinator = (int) (cnt.getAndIncrement() % cluster.size() + 1);
+        return cluster.coordinator(coordinator)
+                      .executeWithPaging(statement.cql(), toApiCl(cl), pageSize, statement.bindings());
+    }
+
     // TODO: Ideally, we need to be able to induce a failure of a single specific message
     public Object[][] executeWithWriteFailure(String statement, ConsistencyLevel cl, Object... bindings)
     {
@@ -188,12 +255,32 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
 
     public CompletableFuture<Object[][]> executeAsync(String statement, ConsistencyLevel cl, Object... bindings)
     {
-        return CompletableFuture.supplyAsync(() -> execute(statement, cl, bindings), executor);
+        return supplyAsync(() -> execute(statement, cl, bindings));
     }
 
     public CompletableFuture<Object[][]> executeAsyncWithWriteFailure(String statement, ConsistencyLevel cl, Object... bindings)
     {
-        return CompletableFuture.supplyAsync(() -> executeWithWriteFailure(statement, cl, bindings), executor);
+        return supplyAsync(() -> executeWithWriteFailure(statement, cl, bindings));
+    }
+
+    private CompletableFuture<Object[][]> supplyAsync(Supplier<Object[][]> supplier)
+    {
+        if (inFlight == null)
+            return CompletableFuture.supplyAsync(supplier, executor);
+
+        inFlight.acquireUninterruptibly();
+        try
+        {
+            CompletableFuture<Object[][]> future = CompletableFuture.supplyAsync(supplier, executor);
+            future.whenComplete((res, t) -> inFlight.release());
+            return future;
+        }
+        catch (Throwable t)
+        {
+            // Executor has rejected the task
+            inFlight.release();
+            throw t;
+        }
     }
 
     public static abstract class InJvmSutBaseConfiguration<NODE extends IInstance, CLUSTER extends ICluster<NODE>> implements Configuration.SutConfiguration
@@ -201,14 +288,30 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
         public final int nodes;
         public final int worker_threads;
         public final String root;
+        public final AsyncExecutorKind async_executor;
+        public final int max_in_flight;
+        public final int page_size;
+
+        public InJvmSutBaseConfiguration(int nodes,
+                                         int worker_threads,
+                                         String root)
+        {
+            this(nodes, worker_threads, root, null, null, null);
+        }
 
         @JsonCreator
         public InJvmSutBaseConfiguration(@JsonProperty(value = "nodes", defaultValue = "3") int nodes,
                                          @JsonProperty(value = "worker_threads", defaultValue = "10") int worker_threads,
-                                         @JsonProperty("root") String root)
+                                         @JsonProperty("root") String root,
+                                         @JsonProperty(value = "async_executor", defaultValue = "FIXED") AsyncExecutorKind async_executor,
+                                         @JsonProperty(value = "max_in_flight", defaultValue = "-1") Integer max_in_flight,
+                                         @JsonProperty(value = "page_size", defaultValue = "1") Integer page_size)
         {
             this.nodes = nodes;
             this.worker_threads = worker_threads;
+            this.async_executor = async_executor == null ? AsyncExecutorKind.FIXED : async_executor;
+            this.max_in_flight = max_in_flight == null ? -1 : max_in_flight;
+            this.page_size = page_size == null ? 1 : page_size;
             if (root == null)
             {
                 try
@@ -226,6 +329,19 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
             }
         }
 
+        protected ExecutorService executor()
+        {
+            switch (async_executor)
+            {
+                case FIXED:
+                    return Executors.newFixedThreadPool(worker_threads);
+                case THREAD_PER_REQUEST:
+                    return newThreadPerRequestExecutor();
+                default:
+                    throw new IllegalStateException(async_executor.toString());
+            }
+        }
+
         protected abstract CLUSTER cluster(Consumer<IInstanceConfig> cfg, int nodes, File root);
         protected abstract InJvmSutBase<NODE, CLUSTER> sut(CLUSTER cluster);
 
@@ -267,6 +383,19 @@ public class InJvmSutBase<NODE extends IInstance, CLUSTER extends ICluster<NODE>
         }
     }
 
+    public enum AsyncExecutorKind
+    {
+        /**
+         * Fixed pool of {@code worker_threads} threads, each blocking on a single request.
+         */
+        FIXED,
+        /**
+         * Virtual thread per request, or an unbounded cached pool if virtual threads are not available.
+         * Best used together with {@code max_in_flight}.
+         */
+        THREAD_PER_REQUEST
+    }
+
     public static org.apache.cassandra.distributed.api.ConsistencyLevel toApiCl(ConsistencyLevel cl)
     {
         switch (cl)
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -57,6 +58,14 @@ public class MixedVersionInJvmSut extends InJvmSutBase<IUpgradeableInstance, Upg
         this.versions = versions;
     }
 
+    public MixedVersionInJvmSut(UpgradeableCluster cluster, ExecutorService executor, int maxInFlight, int pageSize,
+                                Versions.Version initialVersion, List<Versions.Version> versions)
+    {
+        super(cluster, executor, maxInFlight, pageSize);
+        this.initialVersion = initialVersion;
+        this.versions = versions;
+    }
+
     @JsonTypeName("mixed_in_jvm")
     public static class MixedInJvmSutConfiguration extends InJvmSutBaseConfiguration<IUpgradeableInstance, UpgradeableCluster>
     {
@@ -71,9 +80,12 @@ public class MixedVersionInJvmSut extends InJvmSutBase<IUpgradeableInstance, Upg
                                           @JsonProperty(value = "worker_threads", defaultValue = "10") int worker_threads,
                                           @JsonProperty(value = "initial_version") String initial_version,
                                           @JsonProperty(value = "versions") List<String> versions,
-                                          @JsonProperty("root") String root)
+                                          @JsonProperty("root") String root,
+                                          @JsonProperty(value = "async_executor", defaultValue = "FIXED") AsyncExecutorKind async_executor,
+                                          @JsonProperty(value = "max_in_flight", defaultValue = "-1") Integer max_in_flight,
+                                          @JsonProperty(value = "page_size", defaultValue = "1") Integer page_size)
         {
-            super(nodes, worker_threads, root);
+            super(nodes, worker_threads, root, async_executor, max_in_flight, page_size);
 
             this.initial_version = initial_version;
             this.versions = versions;
@@ -104,7 +116,7 @@ public class MixedVersionInJvmSut extends InJvmSutBase<IUpgradeableInstance, Upg
 
         protected InJvmSutBase<IUpgradeableInstance, UpgradeableCluster> sut(UpgradeableCluster cluster)
         {
-            return new MixedVersionInJvmSut(cluster, initialVersion, upgradeVersions);
+            return new MixedVersionInJvmSut(cluster, executor(), max_in_flight, page_size, initialVersion, upgradeVersions);
         }
     }
 
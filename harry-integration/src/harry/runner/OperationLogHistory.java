@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package harry.runner;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import harry.visitors.BinaryOperationLog;
+import harry.visitors.OperationLogIndex;
+
+/**
+ * Prints records of a binary operation log that touched a single partition, or fall into an LTS range:
+ *
+ *   OperationLogHistory operation.bin pd 8135884698435133227
+ *   OperationLogHistory operation.bin lts 5900 5908
+ */
+public class OperationLogHistory
+{
+    public static void main(String[] args) throws Throwable
+    {
+        if (args.length < 3 || !(args[1].equals("pd") || args[1].equals("lts")))
+        {
+            System.err.println("Usage: OperationLogHistory <operation.bin> pd <pd>");
+            System.err.println("       OperationLogHistory <operation.bin> lts <min lts> [<max lts>]");
+            System.exit(1);
+        }
+
+        File log = new File(args[0]);
+        long startNanos = System.nanoTime();
+        try (OperationLogIndex index = OperationLogIndex.open(log))
+        {
+            List<BinaryOperationLog.Record> history;
+            if (args[1].equals("pd"))
+            {
+                history = index.partition(Long.parseLong(args[2]));
+            }
+            else
+            {
+                long minLts = Long.parseLong(args[2]);
+                history = index.lts(minLts, args.length > 3 ? Long.parseLong(args[3]) : minLts);
+            }
+
+            for (BinaryOperationLog.Record record : history)
+                System.out.println(record);
+
+            System.out.println(String.format("Found %d records in %dms",
+                                             history.size(),
+                                             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        }
+    }
+}